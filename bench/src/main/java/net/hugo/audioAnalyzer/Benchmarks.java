@@ -0,0 +1,73 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.Random;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author hugosg
+ * 
+ * Main of benchmarks.jar: JMH with the command line options, always with the GC
+ * profiler so every result comes with its allocation rate. See bench/pom.xml.
+ * 
+ * Also the audio the benchmarks work on, so they all measure the same thing.
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+
+	/**
+	 * @return samples that look like a recording: a tone that comes and goes, a
+	 * second tone, and some noise. Always the same for the same length
+	 */
+	static short[] recording(int samples){
+		Random random = new Random(samples);
+		short[] music = new short[samples];
+		for(int i = 0; i < samples; i++){
+			double t = i / 44100.0;
+			double v = 6000 * Math.sin(2 * Math.PI * 220 * t) * Math.sin(2 * Math.PI * 0.5 * t)
+					+ 2000 * Math.sin(2 * Math.PI * 1375 * t)
+					+ random.nextGaussian() * 200;
+			music[i] = (short)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+		}
+		return music;
+	}
+}
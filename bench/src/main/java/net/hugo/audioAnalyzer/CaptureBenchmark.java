@@ -0,0 +1,96 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author hugosg
+ * 
+ * The write side of the Recorder, the whole path of a recording: the capture
+ * loop writing buffers of bufferSize samples in the SampleRing as fast as it can,
+ * and the PcmWriter thread compressing them into the file. Recordings per second,
+ * the drops would show in the samples of the file. See EncodeBenchmark for only
+ * the compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureBenchmark {
+
+	@Param({"10"})
+	public int seconds;
+
+	@Param({"512", "4096"})
+	public int bufferSize;
+
+	private short[] music;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		music = Benchmarks.recording(seconds * 44100);
+		file = File.createTempFile("bench", ".hpcm");
+	}
+
+	@TearDown
+	public void tearDown(){
+		file.delete();
+	}
+
+	@Benchmark
+	public long record() throws IOException {
+		SampleRing ring = new SampleRing(44100 * 3); //as the Recorder
+		PcmWriter writer = new PcmWriter(file, ring.newCursor(), bufferSize, 44100);
+		for(int off = 0; off < music.length; off += bufferSize){
+			ring.write(music, off, Math.min(bufferSize, music.length - off));
+		}
+		ring.close();
+		writer.close();
+		return writer.getSamples();
+	}
+}
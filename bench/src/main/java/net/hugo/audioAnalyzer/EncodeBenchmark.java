@@ -0,0 +1,86 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author hugosg
+ * 
+ * The compression of the recordings alone, one block of blockFrames samples
+ * with the PcmCodec, both ways. Blocks per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodeBenchmark {
+
+	@Param({"1024", "4096"})
+	public int blockFrames;
+
+	private short[] music;
+	private PcmCodec codec;
+	private byte[] encoded;
+	private int length;
+
+	@Setup
+	public void setup(){
+		music = Benchmarks.recording(blockFrames);
+		codec = new PcmCodec(blockFrames);
+		encoded = new byte[PcmCodec.maxBytes(blockFrames, 1)];
+		length = codec.encode(music, 0, blockFrames, 1, encoded, 0);
+	}
+
+	@Benchmark
+	public int encode(){
+		return codec.encode(music, 0, blockFrames, 1, encoded, 0);
+	}
+
+	@Benchmark
+	public short decode() throws IOException {
+		codec.decode(encoded, 0, length, music, 0, blockFrames, 1);
+		return music[blockFrames - 1];
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author hugosg
+ * 
+ * The FFT of a frame: the complex transform the Analyzer always used, with a
+ * zeroed imaginary part, against the real input path, and the real path in
+ * float and in fixed point (see Precision). Frames per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFTBenchmark {
+
+	@Param({"256", "1024", "4096"})
+	public int size;
+
+	private FFT fft;
+	private double[] frame;
+	private double[] re, im;
+	private FloatFFT floatFft;
+	private float[] floatFrame, floatRe, floatIm;
+	private FixedFFT fixedFft;
+	private int[] fixedFrame, fixedRe, fixedIm;
+
+	@Setup
+	public void setup(){
+		fft = new FFT(size);
+		short[] music = Benchmarks.recording(size);
+		frame = new double[size];
+		for(int i = 0; i < size; i++){
+			frame[i] = music[i] * fft.getWindow()[i];
+		}
+		re = new double[size];
+		im = new double[size];
+
+		floatFft = new FloatFFT(size);
+		floatFrame = new float[size];
+		fixedFft = new FixedFFT(size);
+		fixedFrame = new int[size];
+		float[] floatWindow = floatFft.getScaledWindow(WindowType.HANN);
+		int[] fixedWindow = fixedFft.getWindow(WindowType.HANN);
+		for(int i = 0; i < size; i++){
+			floatFrame[i] = music[i] * floatWindow[i];
+			fixedFrame[i] = (music[i] * fixedWindow[i] + (1 << 14)) >> 15;
+		}
+		floatRe = new float[size / 2 + 1];
+		floatIm = new float[size / 2 + 1];
+		fixedRe = new int[size / 2 + 1];
+		fixedIm = new int[size / 2 + 1];
+	}
+
+	@Benchmark
+	public double complex(){
+		System.arraycopy(frame, 0, re, 0, size);
+		Arrays.fill(im, 0);
+		fft.fft(re, im);
+		return re[1];
+	}
+
+	@Benchmark
+	public double real(){
+		fft.realFFT(frame, re, im);
+		return re[1];
+	}
+
+	@Benchmark
+	public float realFloat(){
+		floatFft.realFFT(floatFrame, floatRe, floatIm);
+		return floatRe[1];
+	}
+
+	@Benchmark
+	public int realFixed(){
+		return fixedFft.realFFT(fixedFrame, fixedRe, fixedIm) + fixedRe[1];
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author hugosg
+ * 
+ * The descriptors of the default pipeline over a block of windows, as a worker of
+ * the FrameBlockProcessor does it: window, FFT, spectrum, centroid, energy, zero
+ * crossing and waveform for each frame. Blocks per second, times windows for
+ * the frames per second, in each Precision. With metrics false the stages are not timed, for
+ * seeing what the Metrics cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+	@Param({"256", "1024", "4096"})
+	public int fftSize;
+
+	@Param({"16", "256"})
+	public int windows; //frames of the block
+
+	@Param({"HANN", "RECTANGULAR"})
+	public String window;
+
+	@Param({"DOUBLE", "FLOAT", "FIXED"})
+	public String precision;
+
+	@Param({"true", "false"})
+	public boolean metrics;
+
+	private FrameKernel kernel;
+	private FrameBlock block;
+	private float[][] out;
+
+	@Setup
+	public void setup(){
+		Metrics.setEnabled(metrics);
+		FramePipeline pipeline = FramePipeline.createDefault();
+		int hop = fftSize / 2;
+		kernel = new FrameKernel(fftSize, WindowType.valueOf(window), Precision.valueOf(precision), pipeline);
+		int[] sizes = new int[pipeline.size()];
+		out = new float[pipeline.size()][];
+		for(int d = 0; d < sizes.length; d++){
+			sizes[d] = pipeline.get(d).getSize(fftSize / 2);
+			out[d] = new float[sizes[d]];
+		}
+		block = new FrameBlock(windows, fftSize, hop, sizes);
+		short[] music = Benchmarks.recording(block.samples.length);
+		System.arraycopy(music, 0, block.samples, 0, music.length);
+		block.count = windows;
+	}
+
+	@Benchmark
+	public float block(){
+		block.compute(kernel, out);
+		return block.values[0][0];
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author hugosg
+ * 
+ * Reading a whole recording through a PcmSource, raw (MappedPcmSource) and
+ * compressed (CompressedPcmSource), in reads of bufferSize samples. The files
+ * are written once per trial in the temp directory. Recordings per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PcmReadBenchmark {
+
+	@Param({"10", "60"})
+	public int seconds;
+
+	@Param({"1024", "4096", "16384"})
+	public int bufferSize;
+
+	@Param({"raw", "compressed"})
+	public String format;
+
+	private File file;
+	private short[] buffer;
+
+	@Setup
+	public void setup() throws IOException {
+		short[] music = Benchmarks.recording(seconds * 44100);
+		if(format.equals("raw")){
+			file = File.createTempFile("bench", ".pcm");
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				for(int i = 0; i < music.length; i++){
+					out.writeShort(music[i]);
+				}
+			} finally {
+				out.close();
+			}
+		} else {
+			file = File.createTempFile("bench", ".hpcm");
+			CompressedPcm.Writer writer = new CompressedPcm.Writer(file, 44100, 1);
+			writer.write(music, 0, music.length);
+			writer.close();
+		}
+		buffer = new short[bufferSize];
+	}
+
+	@TearDown
+	public void tearDown(){
+		file.delete();
+	}
+
+	@Benchmark
+	public long readAll() throws IOException {
+		PcmSource source = PcmFiles.open(file);
+		long sum = 0;
+		try {
+			int read;
+			while((read = source.read(buffer, 0, bufferSize)) > 0){
+				sum += buffer[read - 1];
+			}
+		} finally {
+			source.close();
+		}
+		return sum;
+	}
+}
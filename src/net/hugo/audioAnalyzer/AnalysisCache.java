@@ -0,0 +1,242 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import android.util.Log;
+
+/**
+ * @author hugosg
+ * 
+ * Directory of FrameStores, one per analyzed recording, so opening the
+ * AnalyzerActivity again for a recording that did not change only reads
+ * the frames back.
+ * 
+ * An entry is known by the length of the recording, a checksum of its samples
+ * and the AnalysisConfig, so the same recording can be cached for an overview
+ * and for a detailed view. It only counts if the modification time is also the same, so
+ * a recording that changes just misses and gets a new entry. The checksum
+ * does not read the whole file, only CHECKSUM_CHUNKS pieces spread over it.
+ * 
+ * Each hit touches the entry, and when the directory goes over its size the
+ * least recently used entries are deleted, never the one just added. On the
+ * sdcard setLastModified() often does nothing, then the hit creates an empty
+ * USED file next to the entry instead, a new file always gets the time. An entry
+ * that would be bigger than the whole cache is not written at all, it would
+ * only push out everything else and be deleted right away.
+ */
+public class AnalysisCache {
+
+	private static final int CHECKSUM_CHUNKS = 16;
+	private static final int CHECKSUM_SAMPLES = 4096; //per chunk
+	private static final String SUFFIX = ".frames";
+	private static final String USED = ".used"; //empty, its time is the last use of the entry
+
+	private final File dir;
+	private final long maxBytes;
+
+	/**
+	 * @param dir where the entries are, created if needed
+	 * @param maxBytes size of the directory before deleting the oldest entries
+	 */
+	public AnalysisCache(File dir, long maxBytes){
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return checksum of the samples of the recording (FNV-1a of pieces of it)
+	 */
+	public static long checksum(PcmSource source) throws IOException {
+		long length = source.length();
+		short[] chunk = new short[CHECKSUM_SAMPLES];
+		long hash = 0xcbf29ce484222325L ^ length;
+		for(int c = 0; c <= CHECKSUM_CHUNKS; c++){
+			//the first and the last samples are always in
+			long position = Math.max(0, (length - CHECKSUM_SAMPLES) * c / CHECKSUM_CHUNKS);
+			int read = source.read(position, chunk, 0, (int)Math.min(CHECKSUM_SAMPLES, length - position));
+			for(int i = 0; i < read; i++){
+				hash ^= chunk[i] & 0xFFFF;
+				hash *= 0x100000001b3L;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @param samples length of the recording
+	 * @param modified last modification of the recording
+	 * @param checksum see checksum()
+	 * @param config how the frames are cut
+	 * @return the entry of the recording, or null if there is none. Close it when done
+	 */
+	public FrameStore.Reader get(long samples, long modified, long checksum, AnalysisConfig config){
+		File entry = getEntry(samples, checksum, config);
+		if(!entry.exists()) return null;
+		try {
+			FrameStore.Reader reader = new FrameStore.Reader(entry);
+			if(reader.complete && reader.samples == samples && reader.modified == modified && reader.checksum == checksum){
+				touch(entry); //recently used
+				return reader;
+			}
+			reader.close();
+		} catch (IOException e) {
+			Log.w("HUGO", "Ignoring the cache entry " + entry + ": " + e.getMessage());
+		}
+		delete(entry); //the recording changed, or the entry is broken
+		return null;
+	}
+
+	/**
+	 * @param frames number of frames the entry will have
+	 * @return a writer for a new entry, give it to put() once it is complete
+	 * @throws IOException also if the entry would not fit in the cache
+	 */
+	public FrameStore.Writer create(AnalysisConfig config, FramePipeline pipeline, int[] sizes, int frames) throws IOException {
+		long bytes = FrameStore.getFileSize(sizes, frames, true);
+		if(bytes > maxBytes) throw new IOException("the entry would be " + bytes + " bytes, the cache is " + maxBytes);
+		if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Can not create " + dir);
+		File tmp = File.createTempFile("entry", ".tmp", dir);
+		return new FrameStore.Writer(tmp, config, pipeline, sizes, true);
+	}
+
+	/**
+	 * @param writer from create(), already finished with the same samples, modified and checksum
+	 * 
+	 * Make the entry visible, replacing the old one, and delete the oldest entries if the cache is too big
+	 * 
+	 * @return the file of the entry, null if it could not be saved
+	 */
+	public File put(FrameStore.Writer writer, long samples, long checksum, AnalysisConfig config){
+		File entry = getEntry(samples, checksum, config);
+		if(writer.getFile().length() > maxBytes){ //it would be the first one trimmed
+			Log.w("HUGO", "Not caching " + entry + ", bigger than the cache");
+			writer.getFile().delete();
+			return null;
+		}
+		delete(entry);
+		if(!writer.getFile().renameTo(entry)){
+			Log.w("HUGO", "Could not save the cache entry " + entry);
+			writer.getFile().delete();
+			return null;
+		}
+		trim(entry);
+		return entry;
+	}
+
+	/**
+	 * @param writer from create(), aborted or not
+	 * 
+	 * Forget an entry that could not be completed
+	 */
+	public void discard(FrameStore.Writer writer){
+		writer.abort();
+		writer.getFile().delete();
+	}
+
+	/**
+	 * Delete the least recently used entries until the cache fits in maxBytes
+	 */
+	public void trim(){
+		trim(null);
+	}
+
+	/**
+	 * @param keep entry that is never deleted, null for none
+	 * 
+	 * Only the finished entries count, the ones still being written by create() are left alone
+	 */
+	private void trim(File keep){
+		File[] files = dir.listFiles(new FileFilter(){
+			@Override
+			public boolean accept(File file){
+				return file.getName().endsWith(SUFFIX);
+			}
+		});
+		if(files == null) return;
+		long total = 0;
+		for(int i = 0; i < files.length; i++){
+			total += files[i].length();
+		}
+		if(total <= maxBytes) return;
+		Arrays.sort(files, new Comparator<File>(){
+			@Override
+			public int compare(File a, File b){
+				long x = lastUse(a), y = lastUse(b);
+				return x < y ? -1 : (x == y ? 0 : 1);
+			}
+		});
+		for(int i = 0; i < files.length && total > maxBytes; i++){
+			if(files[i].equals(keep)) continue;
+			long length = files[i].length();
+			if(delete(files[i])) total -= length;
+		}
+	}
+
+	/**
+	 * Mark the entry as just used
+	 */
+	private static void touch(File entry){
+		File used = new File(entry.getPath() + USED);
+		if(entry.setLastModified(System.currentTimeMillis())){
+			used.delete(); //the entry has the time now
+			return;
+		}
+		used.delete();
+		try {
+			used.createNewFile();
+		} catch (IOException e) {
+			Log.w("HUGO", "Can not mark the cache entry " + entry + " as used: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return when the entry was last used, created or touched
+	 */
+	private static long lastUse(File entry){
+		return Math.max(entry.lastModified(), new File(entry.getPath() + USED).lastModified());
+	}
+
+	/**
+	 * @return true if the entry was deleted, its USED file goes too
+	 */
+	private static boolean delete(File entry){
+		new File(entry.getPath() + USED).delete();
+		return entry.delete();
+	}
+
+	private File getEntry(long samples, long checksum, AnalysisConfig config){
+		return new File(dir, Long.toHexString(checksum) + "-" + samples + "-" + config.getKey() + SUFFIX);
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * How a recording is cut in frames: the FFT size, the hop between frames, the
+ * window and which frames to analyze. Before they were numbers hard coded in
+ * the Analyzer.
+ * 
+ * A big hop is a fast overview of a long recording (the hop can be bigger than
+ * the FFT size, then some samples are not analyzed at all), a small hop gives
+ * the detail of a short clip. The default is what the analysis always did: 256
+ * samples, a hop of 128 and a Hann window over the whole recording, in double.
+ */
+public class AnalysisConfig {
+
+	public static final int DEFAULT_FFT_SIZE = 256;
+	public static final int DEFAULT_HOP = DEFAULT_FFT_SIZE / 2;
+	/** Biggest FFT size for Precision.FIXED, over it a clean tone reads far too high, see Precision */
+	public static final int MAX_FIXED_FFT_SIZE = 1024;
+
+	private int fftSize = DEFAULT_FFT_SIZE;
+	private int hop = DEFAULT_HOP;
+	private WindowType window = WindowType.HANN;
+	private int firstFrame = 0;
+	private int maxFrames = -1; //-1 for all the frames until the end
+	private Precision precision = Precision.DOUBLE;
+
+	/**
+	 * @param fftSize samples of each frame, remember power of two!!!
+	 */
+	public void setFftSize(int fftSize){
+		if(fftSize < 2 || (fftSize & (fftSize - 1)) != 0){
+			throw new IllegalArgumentException("FFT size must be a power of two, got " + fftSize);
+		}
+		checkFixed(fftSize, precision);
+		this.fftSize = fftSize;
+	}
+
+	/**
+	 * @param hop how much do we move the window between frames
+	 */
+	public void setHop(int hop){
+		if(hop <= 0) throw new IllegalArgumentException("hop must be positive, got " + hop);
+		this.hop = hop;
+	}
+
+	public void setWindow(WindowType window){
+		if(window == null) throw new IllegalArgumentException("window can not be null");
+		this.window = window;
+	}
+
+	/**
+	 * @param precision arithmetic of the windowing and the FFT, see Precision for the error of each one.
+	 * FIXED only up to MAX_FIXED_FFT_SIZE
+	 */
+	public void setPrecision(Precision precision){
+		if(precision == null) throw new IllegalArgumentException("precision can not be null");
+		checkFixed(fftSize, precision);
+		this.precision = precision;
+	}
+
+	private static void checkFixed(int fftSize, Precision precision){
+		if(precision == Precision.FIXED && fftSize > MAX_FIXED_FFT_SIZE){
+			throw new IllegalArgumentException("FIXED precision only up to an FFT size of " + MAX_FIXED_FFT_SIZE + ", got " + fftSize);
+		}
+	}
+
+	/**
+	 * @param first first frame to analyze, it starts at sample first * hop
+	 * @param count number of frames to analyze, -1 for all until the end
+	 */
+	public void setFrameRange(int first, int count){
+		if(first < 0) throw new IllegalArgumentException("first frame can not be negative, got " + first);
+		this.firstFrame = first;
+		this.maxFrames = count < 0 ? -1 : count;
+	}
+
+	public int getFftSize(){
+		return fftSize;
+	}
+
+	public int getHop(){
+		return hop;
+	}
+
+	public WindowType getWindow(){
+		return window;
+	}
+
+	public Precision getPrecision(){
+		return precision;
+	}
+
+	public int getFirstFrame(){
+		return firstFrame;
+	}
+
+	/**
+	 * @return true if all the frames of the recording are analyzed, not a range
+	 */
+	public boolean isWholeRecording(){
+		return firstFrame == 0 && maxFrames < 0;
+	}
+
+	/**
+	 * @return number of bins of the spectrum
+	 */
+	public int getBins(){
+		return fftSize / 2;
+	}
+
+	/**
+	 * @return sample where the first analyzed frame starts
+	 */
+	public long getFirstSample(){
+		return (long)firstFrame * hop;
+	}
+
+	/**
+	 * @param samples length of the recording
+	 * @return number of complete frames in the range, the last part is discarded if minor than size
+	 */
+	public int getFrames(long samples){
+		long total = samples < fftSize ? 0 : (samples - fftSize) / hop + 1;
+		long frames = Math.max(0, total - firstFrame);
+		if(maxFrames >= 0) frames = Math.min(frames, maxFrames);
+		return (int)Math.min(frames, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return seconds between two frames at the sample rate
+	 */
+	public float getFrameSeconds(int sampleRate){
+		return (float)hop / sampleRate;
+	}
+
+	/**
+	 * @return a short text that changes if any parameter that changes the frames changes, for file names.
+	 * The keys in double are the same as before there was a Precision
+	 */
+	public String getKey(){
+		String key = fftSize + "-" + hop + "-" + window.ordinal() + "-" + firstFrame;
+		return precision == Precision.DOUBLE ? key : key + "-p" + precision.ordinal();
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * @author hugosg
+ * 
+ * The analysis itself, without Android: the frames of a PcmSource are read in
+ * blocks, computed by the FrameBlockProcessor and merged in order by a FrameMerger.
+ * The Analyzer runs it in an AsyncTask for the AnalyzerActivity, the BatchAnalyzer
+ * runs it on a desktop JVM over a whole directory of recordings.
+ * 
+ * Nothing is logged here, the problems go up as exceptions. The times of the
+ * reading and the merging go to the Metrics.
+ */
+public class AnalysisEngine {
+
+	private static final int BLOCK_FRAMES = 256; //max frames computed together by a worker...
+	private static final int BLOCK_SAMPLES = 1 << 16; //...and max samples of a block, for big hops
+
+	/**
+	 * Gets every block once it is merged, for saving the frames somewhere
+	 */
+	public interface BlockListener {
+		void merged(FrameBlock block) throws IOException;
+	}
+
+	private final FramePipeline pipeline;
+	private final AnalysisConfig config;
+	private final int threads;
+
+	/**
+	 * @param pipeline the descriptors to compute for each frame
+	 * @param config how the frames are cut
+	 * @param threads worker threads computing the frames, 1 for computing in the calling thread
+	 */
+	public AnalysisEngine(FramePipeline pipeline, AnalysisConfig config, int threads){
+		this.pipeline = pipeline;
+		this.config = config;
+		this.threads = Math.max(threads, 1);
+	}
+
+	/**
+	 * @param store saved frames, null if there are none. It is closed
+	 * @param merger where the frames go
+	 * @param samples length of the recording
+	 * @param frames frames to analyze, see AnalysisConfig.getFrames()
+	 * @param listener gets each merged block, null if nobody
+	 * @return true if the store had all the frames and they were merged, false if they have to be computed
+	 */
+	public boolean replay(FrameStore.Reader store, FrameMerger merger, long samples, int frames, BlockListener listener) throws IOException {
+		if(store == null) return false;
+		try {
+			if(!store.matches(pipeline, config, samples, frames)) return false;
+			FrameBlock block = new FrameBlock(BLOCK_FRAMES, 0, 1, merger.getSizes()); //only the values are used
+			int nextFrame = 0;
+			while(nextFrame < frames){
+				block.first = nextFrame;
+				long start = Metrics.start();
+				if(store.readBlock(block, Math.min(BLOCK_FRAMES, frames - nextFrame)) == 0){
+					throw new IOException("Saved frames end at " + nextFrame + " of " + frames);
+				}
+				Metrics.READ.stop(start);
+				merge(merger, block, listener);
+				nextFrame += block.count;
+			}
+			return true;
+		} finally {
+			store.close();
+		}
+	}
+
+	/**
+	 * Compute the frames from the samples, starting at the position of the source, and merge them
+	 * 
+	 * @param source the recording, at the first sample of the range of the config
+	 * @param merger where the frames go
+	 * @param frames frames to analyze, see AnalysisConfig.getFrames()
+	 * @param listener gets each merged block, null if nobody
+	 * @return number of frames merged, less than frames if the recording was shorter
+	 */
+	public int compute(PcmSource source, FrameMerger merger, int frames, BlockListener listener)
+			throws IOException, InterruptedException, ExecutionException {
+		//The frames are read in blocks and computed by the workers. This thread only reads the file and merges
+		//the blocks in order: records, variations and statistics go exactly as with a single thread
+		int[] sizes = merger.getSizes();
+		final int size = config.getFftSize();
+		final int hop = config.getHop();
+		final int blockFrames = Math.max(1, Math.min(BLOCK_FRAMES, BLOCK_SAMPLES / hop));
+		FrameBlockProcessor processor = new FrameBlockProcessor(threads, size, config.getWindow(), config.getPrecision(), pipeline);
+		LinkedList<Future<FrameBlock>> pending = new LinkedList<Future<FrameBlock>>(); //submitted blocks, in order
+		LinkedList<FrameBlock> freeBlocks = new LinkedList<FrameBlock>();
+		int maxPending = threads * 2; //enough to keep the workers busy while we read and merge
+		FrameReader reader = new FrameReader(source, size, hop);
+		int merged = 0;
+		try {
+			int nextFrame = 0;
+			boolean ended = false;
+			while(true){
+				//read ahead
+				while(!ended && pending.size() < maxPending){
+					FrameBlock block = freeBlocks.isEmpty() ? newBlock(blockFrames, size, hop, sizes) : freeBlocks.removeFirst();
+					block.first = nextFrame;
+					int wanted = Math.min(blockFrames, frames - nextFrame);
+					long start = Metrics.start();
+					block.count = reader.nextBlock(block.samples, wanted);
+					Metrics.READ.stop(start);
+					Metrics.SAMPLES.add(block.count == 0 ? 0 : (long)(block.count - 1) * hop + size);
+					nextFrame += block.count;
+					if(block.count < wanted || nextFrame >= frames) ended = true;
+					if(block.count > 0) pending.add(processor.submit(block));
+				}
+				if(pending.isEmpty()) break;
+				
+				//merge the oldest block
+				FrameBlock block = pending.removeFirst().get();
+				merge(merger, block, listener);
+				Metrics.FRAMES.add(block.count);
+				merged += block.count;
+				freeBlocks.add(block);
+			}
+		} finally {
+			processor.shutdown();
+		}
+		return merged;
+	}
+
+	private static void merge(FrameMerger merger, FrameBlock block, BlockListener listener) throws IOException {
+		long start = Metrics.start();
+		merger.merge(block);
+		Metrics.MERGE.stop(start);
+		if(listener != null) listener.merged(block);
+	}
+
+	private static FrameBlock newBlock(int capacity, int size, int hop, int[] sizes){
+		FrameBlock block = new FrameBlock(capacity, size, hop, sizes);
+		long bytes = block.samples.length * 2L;
+		for(int d = 0; d < sizes.length; d++){
+			bytes += block.values[d].length * 4L;
+		}
+		Metrics.allocated(bytes);
+		return block;
+	}
+}
@@ -28,16 +28,13 @@
  */
 package net.hugo.audioAnalyzer;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 import android.app.Activity;
 import android.os.AsyncTask;
-import android.os.Environment;
+import android.util.Log;
 
 /**
  * @author hugosg
@@ -47,11 +44,32 @@ import android.os.Environment;
  * It was elaborated by extending the Player class.
  * Instead of setting up and audioPlayer we get the values of
  * the file, do an FFT, and run all the different analyzis steps
+ * 
+ * The computation itself is in the AnalysisEngine, which has nothing of
+ * Android. Here it is run in the background, with the caches, for the listener.
  *
  */
-public class Analyzer extends AsyncTask<Activity, ArrayList<Float>, Void>{
+public class Analyzer extends AsyncTask<Activity, FrameBatch, Void>{
 
 	AnalyzerListener al;
+	
+	private File file = Storage.getRecording();
+	private FramePipeline pipeline = FramePipeline.createDefault();
+	private AnalysisConfig config = new AnalysisConfig();
+	private int threads = Runtime.getRuntime().availableProcessors();
+	
+	//frames of the analyzed recordings, see setCacheSize
+	private long cacheBytes = 32 * 1024 * 1024;
+	private FrameStore.Writer cacheEntry; //entry being written while merging, null if none
+	private volatile File savedFrames; //the FrameStore in the cache or next to the recording, null if none
+	
+	//batching of the records before sending them to the UI thread, see setBatching
+	private final FrameBatcher batcher = new FrameBatcher(new FrameBatcher.Target(){
+		@Override
+		public void deliver(FrameBatch batch){
+			publishProgress(batch);
+		}
+	});
 
 	/**
 	 * @param al
@@ -62,16 +80,97 @@ public class Analyzer extends AsyncTask<Activity, ArrayList<Float>, Void>{
 		this.al = al;
 	}
 
+	/**
+	 * @param file the recording to analyze, see RecordingLibrary. Call it before execute()
+	 */
+	public void setFile(File file){
+		this.file = file;
+	}
+
+	/**
+	 * @return true if the frames of the analysis are saved, so the next time they are only read.
+	 * Known once the analysis is done
+	 */
+	public boolean isSaved(){
+		return savedFrames != null;
+	}
+
+	/**
+	 * @return the FrameStore with the frames of the analysis, null if they are not saved. Known
+	 * once the analysis is done, a cache entry may be deleted later by another analysis
+	 */
+	public File getSavedFrames(){
+		return savedFrames;
+	}
+
+	/**
+	 * @param pipeline the descriptors to compute for each frame
+	 * 
+	 * By default the pipeline is FramePipeline.createDefault(). Call it before execute()
+	 */
+	public void setPipeline(FramePipeline pipeline){
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * @param config FFT size, hop, window and frames to analyze
+	 * 
+	 * By default the whole recording with 256 samples, a hop of 128 and a Hann window. Call it before execute()
+	 */
+	public void setConfig(AnalysisConfig config){
+		this.config = config;
+	}
+
+	/**
+	 * @param threads number of threads computing the frames, 1 for doing everything in the background thread
+	 * 
+	 * By default one thread per core. The frames are split in blocks, computed in parallel, and merged
+	 * in order, so the result is exactly the same with any number of threads. Call it before execute()
+	 */
+	public void setThreads(int threads){
+		this.threads = Math.max(threads, 1);
+	}
+
+	/**
+	 * @param bytes max size of the AnalysisCache, 0 for not using it
+	 * 
+	 * The frames of the recordings already analyzed are kept, so opening the analysis again is fast.
+	 * The least recently used ones are deleted when the cache gets bigger. Call it before execute()
+	 */
+	public void setCacheSize(long bytes){
+		this.cacheBytes = Math.max(bytes, 0);
+	}
+
+	/**
+	 * @param maxFrames a batch is sent once it has this many records...
+	 * @param maxDelayMillis ...or once its first record has waited this long
+	 * @param maxUpdatesPerSecond but never more than this batches per second, 0 for no limit
+	 * 
+	 * Set how the records are grouped before going to the UI thread. While the UI is
+	 * limited the batch keeps growing, so the analysis never waits for the screen.
+	 * Call it before execute(). setBatching(1, 0, 0) sends every record on its own.
+	 */
+	public void setBatching(int maxFrames, long maxDelayMillis, int maxUpdatesPerSecond){
+		batcher.setBatching(maxFrames, maxDelayMillis, maxUpdatesPerSecond);
+	}
+
 	/* (non-Javadoc)
 	 * @see android.os.AsyncTask#onProgressUpdate(Progress[])
 	 * 
 	 * Remember, this will be called on each call of publishProgress inside the doInBackground method
 	 */
 	@Override
-	protected void onProgressUpdate(ArrayList<Float>... list) {
+	protected void onProgressUpdate(FrameBatch... batches) {
 		//super.onProgressUpdate(values);
 		synchronized(this){
-			al.analyzePart(list[0]);
+			long start = Metrics.start();
+			FrameBatch delivered = batches[0];
+			for(int i = 0; i < delivered.size(); i++){
+				al.analyzePart(delivered.get(i));
+			}
+			al.analyzeFlush();
+			Metrics.PUBLISH.stop(start);
+			batcher.recycle(delivered); //the listener is done with the records
 		}
 	}
 
@@ -85,235 +184,190 @@ public class Analyzer extends AsyncTask<Activity, ArrayList<Float>, Void>{
 
 	@Override
 	protected Void doInBackground(Activity... params) {
-		// Get the file we want to playback.
-		File file = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/recording.pcm");
-		// Get the length of the audio stored in the file (16 bit so 2 bytes per short)
-		// and create a short array to store the recorded audio.
-		int musicLength = (int)(file.length()/2);
-		short[] music = new short[musicLength];
-
-
+		// Get the file we want to analyze.
+		File file = this.file;
+		// We do not load the file, the samples are read block by block by the FrameReader
+		PcmSource source;
 		try {
-			// Create a DataInputStream to read the audio data back from the saved file.
-			InputStream is = new FileInputStream(file);
-			BufferedInputStream bis = new BufferedInputStream(is);
-			DataInputStream dis = new DataInputStream(bis);
-
-			// Read the file into the music array.
-			int i = 0;
-			while (dis.available() > 0) {
-				music[i] = dis.readShort();
-				//  music[musicLength-1-i] = dis.readShort();
-				i++;
-			}
-
-			// Close the input streams.
-			dis.close();
-		} catch (Throwable t) {}
-		
+			source = PcmFiles.open(file);
+		} catch (IOException e) {
+			Log.e("HUGO", "Analysis failed opening " + file, e);
+			return null;
+		}
+		int musicLength = (int)source.length();
 		
 		/*
 		*STARTING OF THE ANALYZIS
 		*
 		*NOTE: after each step of the analysis, the values are passed -thru the publishProgress which in turn pass the values
-		*to the listener using a simple protocol where the first value of the list is used as a ID of the type of analysis
+		*to the listener inside a FrameRecord, the Descriptor of the record tells the type of analysis
+		*
+		*The file is streamed in blocks of frames and every descriptor of the pipeline is computed for a frame by the
+		*FrameKernel of a worker thread, so the values of the frames are published as soon as their block is done.
+		*The variations are computed and published while merging, as they are: the view normalizes them when
+		*drawing. The HEAD goes at the end, its averages are kept on the way by a RunningStats per descriptor
+		*
+		*If the recording did not change since the last time, the frames are just read from the AnalysisCache.
+		*If they were computed while recording, they are read from the FrameStore next to the recording.
+		*Otherwise they are computed, and in the last two cases they go to the cache for the next time
 		*/
 		
-		int fft_size = 256; //remember power of two!!!
-		int slope = fft_size / 2; //how much do we move the window
-		int frames = (int)(musicLength / slope) - 1;//getting number of frames, discard last part if minor than size. Not ideal
-
-		//wave form
-		for(int f = 0; f < frames; f++){
-			//copy slide of signal only one sample per frame
-			//normalized to -1, 1
-			ArrayList<Float> audioData = new ArrayList<Float>();
-			audioData.add(new Float(1)); //heather ONE for audio data
-			audioData.add(new Float(frames)); //keep track of how many frames
-			audioData.add(new Float(f)); //counter of current frame
-			//in the nest line the short.Max_value + 1 as a way to get the max positive value possible in a Short
-			audioData.add(new Float(music[f * slope] * 1.0 / (Short.MAX_VALUE + 1))); //sending the value in a range of -1.0 to 1.0
-			publishProgress(audioData);
+		final AnalysisConfig config = this.config;
+		int frames = config.getFrames(musicLength);//getting number of frames, discard last part if minor than size. Not ideal
+		if(frames < 2){ //not enough audio for a variation
+			try {
+				source.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			return null;
 		}
 
-		//FFT
-		FFT fft = new FFT(fft_size);
-		double[] window = fft.getWindow();
-		double[] re = new double[fft_size]; //array for the real part
-		double[] im = new double[fft_size];	//array for the imaginary part. NOT USED FOR NOW
+		final FramePipeline pipeline = this.pipeline;
+		int bins = config.getBins();
+		FrameMerger merger = new FrameMerger(pipeline, bins, frames, batcher);
+		AnalysisEngine engine = new AnalysisEngine(pipeline, config, threads);
 		
-		float[] centroids = new float[frames]; //array for the centroids of the entire file
-		float[] energies = new float[frames]; //array for the energies of the entire file
-		
-		for(int f = 0; f < frames; f++){
-			//copy slide of signal to re normalized to -1 to 1
-			//fill im with zeros
-			//multiply signal for window
-			for(int i = 0; i < fft_size; i++){
-				re[i] = music[(f * slope) + i] * 1.0 / (Short.MAX_VALUE + 1);
-				re[i] *= window[i];
-				im[i] = 0;
+		//who the recording is for the cache
+		long modified = file.lastModified();
+		long checksum = 0;
+		AnalysisCache cache = null;
+		if(cacheBytes > 0){
+			try {
+				checksum = AnalysisCache.checksum(source);
+				cache = new AnalysisCache(Storage.getCacheDir(), cacheBytes);
+			} catch (IOException e) {
+				Log.e("HUGO", "Analysis failed reading " + file, e);
 			}
-			fft.fft(re, im); //call of the magic function! :-) Thanks to the MeapSoft guys!
-
-			//copy fft data to the array and send to other thread. Remember, Only half of the array is necessary
-			ArrayList<Float> fftData = new ArrayList<Float>();
-			fftData.add(new Float(2)); //heather TWO for fft
-			fftData.add(new Float(frames)); //keep track of how many frames
-			fftData.add(new Float(fft_size / 2)); //size of fft_window
-			fftData.add(new Float(f)); //counter of current frame
-			
-			//these two values are used for getting the Spectral Centroid
-			//http://en.wikipedia.org/wiki/Spectral_centroid
-			double centroidFnXn = 0;
-			double centroidXn = 0;
-			
-			double energy = 0;
-			
-			//after heuristic observation it seems the max that the fft can give is around 70
-			//this for loop is where we traverse all the bands of the FFT -it can be expensive
-			for(int i = 0; i < fft_size / 2; i++){
-				fftData.add((float)Math.sqrt(Math.abs(re[i]))); //remove negatives
-				
-				//for the centroid we keep value of the 
-				centroidFnXn += i * Math.abs(re[i]); //keeping track of the magnitude of each bin multipied by it's index, it does the trick!
-				centroidXn += Math.abs(re[i]); //keep track of the total value of the addition of the magnitudes of all the bins
-				
-				//For the energy we just add all the values of all the bands
-				energy += Math.sqrt(Math.abs(re[i])); //use of the Math.sqrt as a way to compress the values into a smaller range
-			}
-			
-			centroids[f] = (float)(centroidFnXn / centroidXn);
-
-			energies[f] = (float)(energy);
-			
-			publishProgress(fftData);
 		}
 		
-		//Spectral Centroid
-		double average_sc = 0; //for keeping track of the overal Centroid value
-		for(int f = 0; f < frames; f++){
-			ArrayList<Float> scData = new ArrayList<Float>();
-			scData.add(new Float(3)); //heather THREE for spectral centroid
-			scData.add(new Float(frames)); //keep track of how many frames
-			scData.add(new Float(f)); //counter of current frame
-			scData.add(centroids[f]);
-			average_sc += centroids[f]; // we add all the values into the average
-			publishProgress(scData);
-		}
-		
-		//Spectral Centroid variance (derivative of Spectral Centroid over time)
-		//one value less because its the difference between two points
-		float[] sc_derivative = new float[frames - 1];
-		for(int f = 0; f < sc_derivative.length; f++){ //getting variance
-			sc_derivative[f] = centroids[f] - centroids[f + 1];
-		}
-		float max_scd = Float.MIN_VALUE; //setting just a very low floor!
-		for(int f = 0; f < sc_derivative.length; f++){ //getting the major number in positive value for NORMALIZATION
-			if(Math.abs(sc_derivative[f]) > max_scd) max_scd = Math.abs(sc_derivative[f]);
-		}
-		for(int f = 0; f < sc_derivative.length; f++){ //normalize values to 1.0
-			sc_derivative[f] = sc_derivative[f] / max_scd;
-		}
-		for(int f = 0; f < sc_derivative.length; f++){
-			ArrayList<Float> scVarianceData = new ArrayList<Float>();
-			scVarianceData.add(new Float(35)); //heather THREE FIVE for spectral centroid variance
-			scVarianceData.add(new Float(sc_derivative.length)); //keep track of how many frames
-			scVarianceData.add(new Float(f)); //counter of current frame
-			scVarianceData.add(sc_derivative[f]); //putting the value between -1.0 and 1.0
-			publishProgress(scVarianceData); //sending the value
+		FrameStore.Reader cached = cache != null ? cache.get(musicLength, modified, checksum, config) : null;
+		if(replay(engine, cached, merger, musicLength, frames)){
+			Log.i("HUGO", "Analysis read from the cache");
+			savedFrames = cached.getFile();
+		} else {
+			if(cache != null) cacheEntry = create(cache, merger, frames);
+			boolean done;
+			File store = PcmFiles.getFrameStore(file);
+			if(replay(engine, open(store), merger, musicLength, frames)){
+				Log.i("HUGO", "Analysis read from the frames saved while recording");
+				done = true;
+				savedFrames = store;
+			} else {
+				if(cacheEntry != null && cacheEntry.getFrames() > 0){
+					//it has the frames of a store that broke on the way, start it again
+					cache.discard(cacheEntry);
+					cacheEntry = create(cache, merger, frames);
+				}
+				source.seek(config.getFirstSample()); //the frames before the range are not read
+				done = compute(engine, file, source, merger, frames);
+			}
+			if(cacheEntry != null){
+				if(done){
+					try {
+						cacheEntry.finish(musicLength, modified, checksum, true);
+						File entry = cache.put(cacheEntry, musicLength, checksum, config);
+						if(entry != null) savedFrames = entry;
+					} catch (IOException e) {
+						Log.w("HUGO", "Analysis will not be cached: " + e.getMessage());
+						cache.discard(cacheEntry);
+					}
+				} else {
+					cache.discard(cacheEntry);
+				}
+				cacheEntry = null;
+			}
 		}
-		
-		//eneergy defined as the addition of the 
-		double average_en = 0; //for keeping track of the overall value
-		for(int f = 0; f < frames; f++){
-			ArrayList<Float> enData = new ArrayList<Float>();
-			enData.add(new Float(4)); //heather FOUR for spectral centroid
-			enData.add(new Float(frames)); //keep track of how many frames
-			enData.add(new Float(f)); //counter of current frame
-			enData.add(energies[f]); //putting the actual value
-			average_en += energies[f]; //adding all the values together
-			publishProgress(enData); //sending the value
+		try {
+			source.close();
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 		
-		//Energy variance (derivative of energy over time)
-		float[] en_derivative = new float[frames - 1];
-		for(int f = 0; f < en_derivative.length; f++){ //getting variance
-			en_derivative[f] = energies[f] - energies[f + 1];
-		}
-		float max_end = Float.MIN_VALUE;
-		for(int f = 0; f < en_derivative.length; f++){ //getting the major number in positive value for NORMALIZATION
-			if(Math.abs(en_derivative[f]) > max_end) max_end = Math.abs(en_derivative[f]);
-		}
-		for(int f = 0; f < en_derivative.length; f++){ //normalize values to 1.0
-			en_derivative[f] = en_derivative[f] / max_end;
-		}
-		for(int f = 0; f < en_derivative.length; f++){
-			ArrayList<Float> enVarianceData = new ArrayList<Float>();
-			enVarianceData.add(new Float(45)); //heather THREE FIVE for spectral centroid variance
-			enVarianceData.add(new Float(en_derivative.length)); //keep track of how many frames
-			enVarianceData.add(new Float(f)); //counter of current frame
-			enVarianceData.add(en_derivative[f]); //add the value between -1.0 and 1.0
-			publishProgress(enVarianceData); //send the value
+		merger.finish(musicLength);
+		return null;
+	}
+	
+	/**
+	 * Merge all the frames of saved store, if they are the frames of this analysis
+	 * 
+	 * @return true if they were all merged. A store that breaks on the way is deleted and the
+	 * merger starts again, for computing the frames instead
+	 */
+	private boolean replay(AnalysisEngine engine, FrameStore.Reader store, FrameMerger merger, long samples, int frames){
+		if(store == null) return false;
+		try {
+			return engine.replay(store, merger, samples, frames, save);
+		} catch (IOException e) {
+			Log.w("HUGO", "Deleting the broken saved frames " + store.getFile() + ", computing them again", e);
+			store.getFile().delete();
+			merger.reset();
+			return false;
 		}
-		
-		//Zero Crossing. Raw estimation of frequency tendency and level of noise
-		float[] zc = new float[frames];
-		double average_zc = 0;
-		for(int f = 0; f < frames; f++){
-			float zc_counter = 0;
-			short previous_value = 0;
-			for(int i = 0; i < fft_size; i++){ //running all the bands again. Why? It could be merged with the FFT main analyzis
-				short currentValue = music[(f * slope) + i];
-				//count only then change of from symbol
-				if((currentValue >= 0.0 && previous_value < 0.0) ||
-				   (currentValue < 0.0 && previous_value >= 0.0)) zc_counter++;
-				previous_value = currentValue;
-			}
-			zc_counter = zc_counter / fft_size; //convert a value to range 0 to 1.0
-			zc[f] = zc_counter; // add to an array with all the values
-			average_zc += zc_counter; //adding all the values to the average for later division
-			ArrayList<Float> zcData = new ArrayList<Float>();
-			zcData.add(new Float(5)); //heather FIVE for zero crossing
-			zcData.add(new Float(frames)); //keep track of how many frames
-			zcData.add(new Float(f)); //counter of current frame
-			zcData.add((float)zc_counter); //add the value
-			publishProgress(zcData);
+	}
+
+	/**
+	 * @return a new entry of the cache for the frames, null if they will not be cached
+	 */
+	private FrameStore.Writer create(AnalysisCache cache, FrameMerger merger, int frames){
+		try {
+			return cache.create(config, pipeline, merger.getSizes(), frames);
+		} catch (IOException e) {
+			Log.w("HUGO", "Analysis will not be cached: " + e.getMessage());
+			return null;
 		}
-		
-		//Zero crossing variance (Derivative of ZC over time)
-		float[] zc_derivative = new float[frames - 1];
-		for(int f = 0; f < zc_derivative.length; f++){ //getting variance
-			zc_derivative[f] = zc[f] - zc[f + 1];
+	}
+
+	/**
+	 * @return the store, or null if there is none or it can not be read
+	 */
+	private FrameStore.Reader open(File storeFile){
+		if(!storeFile.exists()) return null;
+		try {
+			return new FrameStore.Reader(storeFile);
+		} catch (IOException e) {
+			Log.w("HUGO", "Ignoring the saved frames " + storeFile + ": " + e.getMessage());
+			return null;
 		}
-		float max_zcd = Float.MIN_VALUE;
-		for(int f = 0; f < zc_derivative.length; f++){ //getting the major number in positive value for normalization
-			if(Math.abs(zc_derivative[f]) > max_zcd) max_zcd = Math.abs(zc_derivative[f]);
+	}
+	
+	/**
+	 * Compute the frames from the samples and merge them
+	 * 
+	 * @return true if all the frames were computed
+	 */
+	private boolean compute(AnalysisEngine engine, File file, PcmSource source, FrameMerger merger, int frames){
+		try {
+			return engine.compute(source, merger, frames, save) == frames;
+		} catch (IOException e) {
+			Log.e("HUGO", "Analysis failed reading " + file, e);
+		} catch (InterruptedException e) {
+			Log.e("HUGO", "Analysis interrupted", e);
+		} catch (ExecutionException e) {
+			Log.e("HUGO", "Analysis failed computing the frames", e.getCause());
 		}
-		for(int f = 0; f < zc_derivative.length; f++){ //normalize values to 1.0
-			zc_derivative[f] = zc_derivative[f] / max_zcd;
+		return false;
+	}
+	
+	/**
+	 * Add the frames of each merged block to the cache entry, if there is one
+	 */
+	private final AnalysisEngine.BlockListener save = new AnalysisEngine.BlockListener(){
+		@Override
+		public void merged(FrameBlock block){
+			save(block);
 		}
-		for(int f = 0; f < zc_derivative.length; f++){
-			ArrayList<Float> zcVarianceData = new ArrayList<Float>();
-			zcVarianceData.add(new Float(55)); //heather THREE FIVE for spectral centroid variance
-			zcVarianceData.add(new Float(en_derivative.length)); //keep track of how many frames
-			zcVarianceData.add(new Float(f)); //counter of current frame
-			zcVarianceData.add(zc_derivative[f]); //add the value between -1.0 and 1.0
-			publishProgress(zcVarianceData);//send the value
+	};
+	
+	private void save(FrameBlock block){
+		if(cacheEntry == null) return;
+		try {
+			cacheEntry.writeBlock(block);
+		} catch (IOException e) {
+			Log.w("HUGO", "Analysis will not be cached: " + e.getMessage());
+			cacheEntry.abort();
+			cacheEntry.getFile().delete();
+			cacheEntry = null;
 		}
-		
-		//HEAD DATA to be filled during process.... not send until the end with all the information
-		ArrayList<Float> headData = new ArrayList<Float>();
-		headData.add(new Float(0)); //heather ZERO for head data, music length,
-		headData.add(new Float(musicLength)); //adding the number of samples
-		average_sc = average_sc / frames; // dividing for getting average
-		headData.add((float)average_sc); //adding Spectral Centroid
-		average_en = average_en / frames; // dividing for getting average
-		headData.add((float)average_en); //adding Energy
-		average_zc = average_zc / frames; // dividing for getting average
-		headData.add((float)average_zc); //adding Zero Crossing
-		publishProgress(headData);
-		
-		return null;
 	}
 }
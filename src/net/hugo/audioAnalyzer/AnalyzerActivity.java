@@ -28,18 +28,30 @@
  */
 package net.hugo.audioAnalyzer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.GestureDetector;
+import android.view.KeyEvent;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
 
 /**
@@ -48,42 +60,288 @@ import android.view.View;
  * This Activity, which is started by the press of the Analyze button
  * on the AudioAnalyzer activity -the main- will start the Analyzer and will be
  * register as a listener to such analyzer plotting all the values as they
- * are generated. Be carefull with the correspondence in the head, order, and
- * number of values inside the lists that are pass throw the listener.
+ * are generated. Each FrameRecord that is pass throw the listener carries a
+ * Descriptor telling what its values are.
+ * 
+ * The values are not drawn as they come, they go into a FramePyramid per
+ * descriptor and the view draws whatever part of the recording is on the
+ * screen from them, in tiles of TILE pixels kept in a LRU cache. Drag to pan,
+ * double tap to zoom in, long press to zoom out (or the dpad).
+ * 
+ * A tile is rendered column by column into an int[] with the colors of the
+ * Palette and copied to its bitmap with a single setPixels. The view is redrawn
+ * at most once per refresh of the display, no matter how many batches come.
+ * 
+ * A long recording keeps only the coarse levels of the pyramids, the detail of
+ * the part on the screen comes from the FramePages when it is drawn.
+ * 
+ * The menu shows the Metrics on top of everything, refreshed twice per second.
+ * The gaps of the recording (see Discontinuities) are red lines on the waveform.
  */
 public class AnalyzerActivity extends Activity {
 
 	private Analyzer analyzer;
 	private AnalyzerView mAnalView;
 	private ProgressDialog dialog;
+	private AnalysisConfig config;
+	private FramePipeline pipeline;
+	private RecordingLibrary library;
+	private long recording = -1; //id in the library, -1 for the recording of before the library
+	private FramePages pages; //the detail of the frames for the pyramids, null until PagesLoader opens the recording
+	private boolean destroyed = false;
+	
+	private static final int METRICS = 1; //menu
 
 	/** Called when the activity is first created. */	
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
-		mAnalView = new AnalyzerView(this);
+		pipeline = FramePipeline.createDefault();
+		config = getConfig(getIntent());
+		mAnalView = new AnalyzerView(this, pipeline, config);
 		setContentView(mAnalView);
 		analyzer = new Analyzer();
+		analyzer.setPipeline(pipeline);
+		analyzer.setConfig(config);
+		//the recording comes as its id in the library
+		File file = Storage.getRecording();
+		recording = getIntent() != null ? getIntent().getLongExtra("recording", -1) : -1;
+		if (recording >= 0) {
+			try {
+				library = Storage.getLibrary();
+				RecordingLibrary.Recording r = library.get(recording);
+				if (r != null) file = r.file;
+			} catch (IOException e) {
+				Log.e("HUGO", "Failed opening the library", e);
+			}
+		}
+		analyzer.setFile(file);
+		new PagesLoader().execute(file); //opening a compressed recording that was not closed reads all of it
+		try {
+			mAnalView.setGaps(Discontinuities.load(PcmFiles.getDiscontinuities(file)));
+		} catch (IOException e) {
+			Log.e("HUGO", "Failed reading the gaps of " + file, e);
+		}
 		analyzer.addListener(mAnalView);
 		analyzer.execute(this);
 		dialog = ProgressDialog.show(AnalyzerActivity.this, "", "Analyzing. Please wait...", true);
 	}
 
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+		destroyed = true;
+		if (pages != null) pages.close();
+	}
+
+	/**
+	 * Opens the recording for the FramePages out of the UI thread, the views get the pages and the
+	 * format of the recording when it is done. Until then only the coarse views are drawn
+	 */
+	private class PagesLoader extends AsyncTask<File, Void, FramePages> {
+
+		private int sampleRate;
+		private int channels;
+
+		@Override
+		protected FramePages doInBackground(File... files) {
+			PcmSource source = null;
+			try {
+				source = PcmFiles.open(files[0]);
+				sampleRate = source.getSampleRate();
+				channels = source.getChannels();
+				FramePages loaded = new FramePages(source, config, pipeline, config.getFrames(source.length()));
+				source = null; //the pages close it
+				return loaded;
+			} catch (IOException e) {
+				Log.e("HUGO", "Failed opening " + files[0] + ", only the coarse views", e);
+				return null;
+			} finally {
+				if (source != null) {
+					try {
+						source.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+
+		@Override
+		protected void onPostExecute(FramePages loaded) {
+			if (loaded == null) return;
+			if (destroyed) {
+				loaded.close();
+				return;
+			}
+			mAnalView.setPages(loaded, sampleRate, channels);
+		}
+	}
+
+	@Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+		menu.add(0, METRICS, 0, "Metrics");
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		if (item.getItemId() != METRICS) return false;
+		mAnalView.showMetrics(!mAnalView.metrics);
+		return true;
+	}
+
+	/**
+	 * Once the analysis is done its averages go to the catalog of the library, so the recordings
+	 * can be sorted and filtered by them without analyzing them again
+	 */
+	private void updateLibrary(float[] head, int length) {
+		if (library == null || recording < 0) return;
+		try {
+			if (head != null && config.isWholeRecording()) {
+				ArrayList<Descriptor> summarized = pipeline.getSummarized();
+				int count = Math.min(length, summarized.size());
+				int[] ordinals = new int[count];
+				float[] averages = new float[count];
+				for (int i = 0; i < count; i++) {
+					ordinals[i] = summarized.get(i).ordinal();
+					averages[i] = head[i];
+				}
+				library.setSummary(recording, ordinals, averages);
+			}
+			library.setSaved(recording, analyzer.isSaved());
+		} catch (IOException e) {
+			Log.e("HUGO", "Failed updating the library", e);
+		}
+	}
+
+	/**
+	 * @return the analysis asked by the extras of the intent: "fftSize", "hop", "window" (the name
+	 * of a WindowType), "precision" (the name of a Precision), "firstFrame" and "frames". What is
+	 * not there keeps its default
+	 */
+	private static AnalysisConfig getConfig(Intent intent) {
+		AnalysisConfig config = new AnalysisConfig();
+		if (intent == null) return config;
+		try {
+			config.setFftSize(intent.getIntExtra("fftSize", config.getFftSize()));
+			config.setHop(intent.getIntExtra("hop", config.getHop()));
+			String window = intent.getStringExtra("window");
+			if (window != null) config.setWindow(WindowType.valueOf(window));
+			String precision = intent.getStringExtra("precision");
+			if (precision != null) config.setPrecision(Precision.valueOf(precision));
+			config.setFrameRange(intent.getIntExtra("firstFrame", 0), intent.getIntExtra("frames", -1));
+		} catch (IllegalArgumentException e) {
+			Log.e("HUGO", "bad analysis settings, using the defaults", e);
+			config = new AnalysisConfig();
+		}
+		return config;
+	}
+
 	private class AnalyzerView extends View implements AnalyzerListener {
 
-		private Bitmap  mBitmap;
+		private static final int TILE = 64; //pixels of width of each tile
+		private static final int MAX_TILES = 48; //tiles kept, about four screens
+		private static final int MAX_ZOOM = 16; //zoom steps of 2, from the whole file
+		private static final float MIN_FRAMES_PER_PIXEL = 1.0f / 8; //at most 8 pixels per frame
+		private static final int KNOWN_BARS = 5; //bars of the descriptors of the default pipeline
+		private static final long METRICS_INTERVAL = 500; //ms between updates of the metrics overlay
+
 		private Paint   mPaint = new Paint();
-		private Canvas  mCanvas = new Canvas();
-		private float   mWidth;
-		private float   mHeight;
+		private int     mWidth;
+		private int     mHeight;
+		
+		//the rows of the screen, fractions of the height so it looks the same in any screen
+		private int waveTop, waveBottom; //waveform
+		private int specTop, specBottom; //spectrogram, the centroid on top of it
+		private int barTop, barHeight; //one bar per descriptor below the spectrogram
+		private int textTop; //first line of the text
 		
-		final int YLocation = 100;
-		float previousX = 0;
-		float previousY = YLocation;
+		private final AnalysisConfig config;
+		private final ArrayList<Descriptor> summarized; //descriptors of the averages in the HEAD, in order
+		private final boolean[] variations = new boolean[Descriptor.values().length]; //tracks normalized when drawn
+		private final int[] pageIndex = new int[Descriptor.values().length]; //in the pipeline of the pages, -1 if not there
+		
+		//everything received, one pyramid per descriptor of one value
+		private final TrackPyramid[] tracks = new TrackPyramid[Descriptor.values().length];
+		private SpectrogramPyramid spectrogram;
+		private int frames = 0; //frames of the recording
+		private float[] head; //averages, null until the HEAD comes
+		private int headLength;
+		private int nSamples;
+		private int sampleRate = 44100; //until setFormat(), the rate of the raw recordings
+		private int channels = 1;
+		
+		//what is on the screen: the recording is a virtual strip of frames / framesPerPixel pixels,
+		//and scroll is the pixel of the strip at the left of the screen
+		private int zoom = 0;
+		private float framesPerPixel = 1;
+		private int scroll = 0;
+		
+		//rendered tiles, the least recently used are dropped and their bitmaps used for the next ones
+		private final ArrayList<Bitmap> freeTiles = new ArrayList<Bitmap>();
+		private final LinkedHashMap<Long, Bitmap> tiles = new LinkedHashMap<Long, Bitmap>(MAX_TILES, 0.75f, true){
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Bitmap> eldest){
+				if(size() > MAX_TILES){
+					freeTiles.add(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		private int dirtyFrom = Integer.MAX_VALUE; //first frame that changed since the tiles were rendered
+		private int[] pixels; //scratch for rendering a tile
+		private int[] intensities; //scratch for a column of the spectrogram
+		private final float[] range = new float[3]; //min, max and mean from a pyramid
+		private int[] gapFrames = new int[0]; //frames where audio is missing, in order
+		
+		private final GestureDetector gestures;
+		private final RedrawScheduler redraw = new RedrawScheduler(this);
+		
+		private boolean metrics = false; //the overlay is on
+		private boolean done = false; //the analysis is over
+		private final ArrayList<String> metricLines = new ArrayList<String>();
 
-		public AnalyzerView(Context context) {
+		public AnalyzerView(Context context, FramePipeline pipeline, AnalysisConfig config) {
 			super(context);
+			this.config = config;
 			mPaint.setFlags(Paint.ANTI_ALIAS_FLAG);
+			summarized = pipeline.getSummarized();
+			Arrays.fill(pageIndex, -1);
+			for (int d = 0; d < pipeline.size(); d++) {
+				pageIndex[pipeline.get(d).getDescriptor().ordinal()] = d;
+				Descriptor variation = pipeline.get(d).getVariation();
+				if (variation != null) {
+					variations[variation.ordinal()] = true;
+					pageIndex[variation.ordinal()] = d; //computed from the frames of its descriptor
+				}
+			}
+			setFocusable(true);
+			setFocusableInTouchMode(true);
+			gestures = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener(){
+				@Override
+				public boolean onDown(MotionEvent e) {
+					return true;
+				}
+				
+				@Override
+				public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+					scrollTo(scroll + (int)distanceX);
+					return true;
+				}
+				
+				@Override
+				public boolean onDoubleTap(MotionEvent e) {
+					zoomTo(zoom + 1, e.getX());
+					return true;
+				}
+				
+				@Override
+				public void onLongPress(MotionEvent e) {
+					zoomTo(zoom - 1, e.getX());
+				}
+			});
 		}
 
 		/* (non-Javadoc)
@@ -94,197 +352,339 @@ public class AnalyzerActivity extends Activity {
 		@Override
 		public void analyzeDone() {
 			Log.i("HUGO", "done with the analyzis");
+			synchronized (this) {
+				//the last nodes of each level will not get more children
+				for (int i = 0; i < tracks.length; i++) {
+					if (tracks[i] != null) tracks[i].finish();
+				}
+				if (spectrogram != null) spectrogram.finish();
+				clearTiles();
+				done = true;
+				readSavedFrames();
+			}
+			redraw.request();
 			dialog.dismiss();
+			updateLibrary(head, headLength);
 		}
 
 		/* (non-Javadoc)
-		 * @see net.hugo.audioAnalyzer.AnalyzerListener#analyzePart(java.util.ArrayList)
-		 * 
-		 * This method comes from the listener... everything for the ploting happens here
-		 * The first value of the list is just an ID to identify which step of the analyzis has
-		 * been done.
+		 * @see net.hugo.audioAnalyzer.AnalyzerListener#analyzeFlush()
+		 * The records of a whole batch are in, only the tiles with frames that changed are rendered again
 		 */
 		@Override
-		public void analyzePart(ArrayList<Float> list) {
+		public void analyzeFlush() {
 			synchronized (this) {
-				Iterator<Float> iter = list.iterator();
-				int ID = (int)iter.next().floatValue(); //get the first value and use as ID
-				switch(ID){
-				case 0:
-					//called at the end with all the global values, Just draw the values as text
-					Log.i("HUGO", "got HEAD listener call");
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						paint.setColor(0xFFFFFFFF);
-						int nSamples = (int)iter.next().floatValue(); //get mSamples
-						canvas.drawText("No Samples: " + nSamples, 1, 400, paint);
-						float duration = nSamples / 44100.0f;
-						canvas.drawText("Duration: " + duration, 1, 410, paint);
-						float sc_average = iter.next().floatValue(); //get SC
-						canvas.drawText("Centroid Avg: " + sc_average, 150, 400, paint);
-						float en_average = iter.next().floatValue(); //get EN
-						canvas.drawText("Energy Avg: " + en_average, 150, 410, paint);
-						float zc_average = iter.next().floatValue(); //get ZC
-						canvas.drawText("Zero Cross Avg: " + zc_average, 150, 420, paint);
-						invalidate(); //repaint the screen.
+				if (dirtyFrom == Integer.MAX_VALUE) return;
+				for (Iterator<Map.Entry<Long, Bitmap>> i = tiles.entrySet().iterator(); i.hasNext();) {
+					Map.Entry<Long, Bitmap> entry = i.next();
+					int tile = (int)entry.getKey().longValue();
+					if ((tile + 1) * TILE * framesPerPixel > dirtyFrom) { //the tile has frames after dirtyFrom
+						freeTiles.add(entry.getValue());
+						i.remove();
 					}
-					break;
+				}
+				dirtyFrom = Integer.MAX_VALUE;
+			}
+			redraw.request();
+		}
 
-				case 1:
-					//plotted as a blue wave form.
-					//Log.i("HUGO", "got AUDIOdata listener call");
-					int frames = (int)iter.next().floatValue();
-					int current_frame = (int)iter.next().floatValue();
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						paint.setColor(0xFF0000FF);
-						float value = iter.next().floatValue();
-						float x = mWidth / frames * current_frame * 1.0f; //set x in the screen size range
-						float y = (value + 1.0f) * YLocation; //200 ranges because y 0 to 2
-						canvas.drawLine(previousX, previousY + 10, x, y + 10, paint); //10  just to put it a little bite down
-						previousX = x; //track of previous values so we can trace the line
-						previousY = y;
-						invalidate();
-					}
+		/* (non-Javadoc)
+		 * @see net.hugo.audioAnalyzer.AnalyzerListener#analyzePart(net.hugo.audioAnalyzer.FrameRecord)
+		 * 
+		 * This method comes from the listener... the values just go to the pyramids, the drawing
+		 * happens in renderTile. The descriptor of the record tells which step of the analyzis has been done.
+		 */
+		@Override
+		public void analyzePart(FrameRecord record) {
+			synchronized (this) {
+				if (record.frame < dirtyFrom && record.descriptor != Descriptor.HEAD) dirtyFrom = record.frame;
+				switch(record.descriptor){
+				case HEAD:
+					//called at the end with all the global values
+					Log.i("HUGO", "got HEAD listener call");
+					nSamples = record.frames; //the head carries the number of samples
+					head = new float[record.length];
+					System.arraycopy(record.values, 0, head, 0, record.length);
+					headLength = record.length;
 					break;
 
-				case 2:
-					//this is plotted as a normal spectrogram win an yellow->orange->red colors. With some tricks for visualziation normalization
-					//Log.i("HUGO", "got FFTdata listener call");
-					frames = (int)iter.next().floatValue();
-					int fft_size = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						for(int i = 0; i < fft_size; i++){
-							float x = mWidth / frames * current_frame * 1.0f; //range of screen size
-							//this implentation has a very important NOTGOOD! The hight of the FFT is determined by the FFT window size.
-							//in this case 256. There is one Ypixel per FFT band. This is clearly not a good architecutre becuase as soon
-							//as we change the FFT window size the visualization will change and break!!!!!!
-							float y = 339 - i; //hard number, not good idea.
-							float value = iter.next().floatValue();
-							//Log.i("HUGO", Float.toString(value));
-							//we are assuming the max value will be around 0.5 if its bigger we set a hard cut Good for visualization
-							int valueColor = (int)Math.min(value * 512, 255.0); //512 just as guess with a min value. Not very elegant
-							paint.setColor(Color.rgb(0xFF,valueColor, 0));
-							canvas.drawPoint(x, y, paint);
-							invalidate();
-						}
+				case SPECTRUM:
+					if (spectrogram == null) {
+						spectrogram = new SpectrogramPyramid(record.frames, record.length);
+						if (pages != null) spectrogram.setPages(pages, pageIndex[Descriptor.SPECTRUM.ordinal()]);
+						setFrames(record.frames);
 					}
+					spectrogram.add(record.frame, record.values, record.length);
 					break;
 					
-				case 3:
-					//this is plotted as a blue dot for each window on top of the spectrogram
-					//Log.i("HUGO", "got SPECTRALCENTROIDdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					float value = iter.next().floatValue();
-					//Log.i("HUGO", "Spectral centroid " + Float.toString(value));
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f; //all the file in the screen range
-						int y = (int)(339 - value); //hard number. Same bad architecture abut the FFTSize Vs Pixels than the FFT
-						paint.setColor(Color.rgb(0x00,0x00, 0xFF));
-						canvas.drawPoint(x, y, paint);
-						invalidate();
+				default:
+					//waveform, centroid, energy, zero crossing, their variations and whatever was added to the pipeline
+					TrackPyramid track = tracks[record.descriptor.ordinal()];
+					if (track == null) {
+						track = new TrackPyramid(record.frames);
+						int d = pageIndex[record.descriptor.ordinal()];
+						if (pages != null && d >= 0) track.setPages(pages, d, variations[record.descriptor.ordinal()]);
+						tracks[record.descriptor.ordinal()] = track;
+						setFrames(record.frames);
 					}
+					float peak = track.getPeak();
+					track.add(record.frame, record.values[0]);
+					//a variation is drawn divided by its peak, if it grows all the tiles change
+					if (variations[record.descriptor.ordinal()] && track.getPeak() != peak) dirtyFrom = 0;
 					break;
+				}
+			}
+		}
+		
+		/**
+		 * @param sampleRate of the recording, from its header
+		 * @param channels of the recording, their samples come interleaved
+		 */
+		public void setFormat(int sampleRate, int channels) {
+			this.sampleRate = sampleRate;
+			this.channels = Math.max(channels, 1);
+		}
+
+		/**
+		 * @param loaded the detail of the frames, for the pyramids made so far and the next ones
+		 * @param sampleRate of the recording
+		 * @param channels of the recording
+		 */
+		public void setPages(FramePages loaded, int sampleRate, int channels) {
+			synchronized (this) {
+				pages = loaded;
+				setFormat(sampleRate, channels);
+				for (int i = 0; i < tracks.length; i++) {
+					if (tracks[i] != null && pageIndex[i] >= 0) tracks[i].setPages(pages, pageIndex[i], variations[i]);
+				}
+				if (spectrogram != null) spectrogram.setPages(pages, pageIndex[Descriptor.SPECTRUM.ordinal()]);
+				if (done) readSavedFrames();
+				clearTiles();
+			}
+			redraw.request();
+		}
+		
+		/**
+		 * Once the frames are saved the pages read them from there instead of computing them again
+		 */
+		private void readSavedFrames() {
+			File saved = analyzer.getSavedFrames();
+			if (pages == null || saved == null) return;
+			try {
+				FrameStore.Reader store = new FrameStore.Reader(saved);
+				if (store.matches(pipeline, config, nSamples, frames)) {
+					pages.setStore(store);
+				} else {
+					store.close();
+				}
+			} catch (IOException e) {
+				Log.w("HUGO", "Computing the detail again, can not read " + saved + ": " + e.getMessage());
+			}
+		}
+		
+		/**
+		 * The first records tell how long is the recording, start showing all of it
+		 */
+		private void setFrames(int frames) {
+			if (frames <= this.frames) return;
+			this.frames = frames;
+			zoom = 0;
+			scroll = 0;
+			updateFramesPerPixel();
+			clearTiles();
+		}
+		
+		private void updateFramesPerPixel() {
+			float all = mWidth > 0 ? (float)frames / mWidth : 1; //the whole file in the screen
+			framesPerPixel = Math.max(all / (1 << zoom), MIN_FRAMES_PER_PIXEL);
+		}
+		
+		/**
+		 * @param level new zoom, 0 is the whole recording
+		 * @param x pixel of the screen that stays in place
+		 */
+		private void zoomTo(int level, float x) {
+			synchronized (this) {
+				level = Math.max(0, Math.min(level, MAX_ZOOM));
+				float all = mWidth > 0 ? (float)frames / mWidth : 1;
+				if (level > zoom && all / (1 << zoom) <= MIN_FRAMES_PER_PIXEL) return; //can not get closer
+				float frame = (scroll + x) * framesPerPixel;
+				zoom = level;
+				updateFramesPerPixel();
+				clearTiles(); //tiles of other zooms are not used again soon
+				scrollTo((int)(frame / framesPerPixel - x));
+			}
+			redraw.request();
+		}
+		
+		private void scrollTo(int x) {
+			int width = (int)Math.ceil(frames / framesPerPixel);
+			scroll = Math.max(0, Math.min(x, width - mWidth));
+			redraw.request();
+		}
+		
+		private void clearTiles() {
+			freeTiles.addAll(tiles.values());
+			tiles.clear();
+			dirtyFrom = Integer.MAX_VALUE;
+		}
+		
+		@Override
+		public boolean onTouchEvent(MotionEvent event) {
+			return gestures.onTouchEvent(event);
+		}
+		
+		@Override
+		public boolean onKeyDown(int keyCode, KeyEvent event) {
+			switch (keyCode) {
+			case KeyEvent.KEYCODE_DPAD_UP:
+				zoomTo(zoom + 1, mWidth / 2);
+				return true;
+			case KeyEvent.KEYCODE_DPAD_DOWN:
+				zoomTo(zoom - 1, mWidth / 2);
+				return true;
+			case KeyEvent.KEYCODE_DPAD_LEFT:
+				scrollTo(scroll - mWidth / 4);
+				return true;
+			case KeyEvent.KEYCODE_DPAD_RIGHT:
+				scrollTo(scroll + mWidth / 4);
+				return true;
+			}
+			return super.onKeyDown(keyCode, event);
+		}
+		
+		/**
+		 * @param tile index of the tile in the strip
+		 * @return the tile, rendered now if it was not in the cache
+		 */
+		private Bitmap getTile(int tile) {
+			Long key = Long.valueOf(((long)zoom << 32) | tile);
+			Bitmap bitmap = tiles.get(key);
+			if (bitmap == null) {
+				renderTile(tile);
+				int free = freeTiles.size();
+				if (free > 0) {
+					bitmap = freeTiles.remove(free - 1);
+				} else {
+					bitmap = Bitmap.createBitmap(TILE, mHeight, Bitmap.Config.RGB_565);
+					Metrics.allocated(TILE * mHeight * 2);
+				}
+				bitmap.setPixels(pixels, 0, TILE, 0, 0, TILE, mHeight); //the whole tile at once
+				tiles.put(key, bitmap);
+			}
+			return bitmap;
+		}
+		
+		/**
+		 * Draw the tile in pixels, column by column. Each column asks the pyramids for the frames
+		 * under it, so the cost does not depend on the zoom
+		 */
+		private void renderTile(int tile) {
+			final int[] pixels = this.pixels;
+			final int h = mHeight;
+			final float[] range = this.range;
+			final Descriptor[] descriptors = Descriptor.values();
+			for (int i = 0; i < pixels.length; i++) {
+				pixels[i] = Color.BLACK;
+			}
+			for (int c = 0; c < TILE; c++) {
+				int px = tile * TILE + c;
+				int from = (int)(px * framesPerPixel);
+				int to = Math.max(from + 1, (int)((px + 1) * framesPerPixel));
 				
-				case 35:
-					//plotted as a grayscale bar
-					//Log.i("HUGO", "got ESPECTALCENTROIDDERIATIVEdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					value = iter.next().floatValue();
-					//Log.i("HUGO", "Spectral derivative " + Float.toString(value));
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f; //in screen range
-						int valueColor = (int)(Math.abs(value * 255)); //we are getting values between -1 and 1
-						paint.setColor(Color.rgb(valueColor,valueColor, valueColor));
-						canvas.drawLine(x, 340, x, 349, paint);
-						invalidate();
-					}
-					break;
-					
-				case 4:
-					//plotted as a grayscale bar
-					//Log.i("HUGO", "got ENERGYdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					value = iter.next().floatValue();
-					//Log.i("HUGO", "ENERGY " + Float.toString(value));
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f;
-						int valueColor = (int)(Math.min(value * 10, 255));
-						paint.setColor(Color.rgb(valueColor,valueColor, valueColor));
-						canvas.drawLine(x, 350, x, 359, paint);
-						invalidate();
-					}
-					break;
-					
-				case 45:
-					//plotted as a grayscale bar
-					//Log.i("HUGO", "got ENERGYCENTROIDDERIATIVEdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					value = iter.next().floatValue();
-					//Log.i("HUGO", "ENERGY Derivative " + Float.toString(value));
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f;
-						int valueColor = (int)(Math.abs(value * 255));
-						paint.setColor(Color.rgb(valueColor,valueColor, valueColor));
-						canvas.drawLine(x, 360, x, 369, paint);
-						invalidate();
-					}
-					break;
-					
-				case 5:
-					//plotted as a grayscale bar
-					//Log.i("HUGO", "got ZEROCROSSINGdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					value = iter.next().floatValue();
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f;
-						int valueColor = (int)(256 * Math.min(value, 1.0) * 5);
-						paint.setColor(Color.rgb(valueColor,valueColor, valueColor));
-						canvas.drawLine(x, 370, x, 379, paint);
-						invalidate();
-					}
-					break;
-					
-				case 55:
-					//plotted as a grayscale bar
-					//Log.i("HUGO", "got ZeroCrossingCENTROIDDERIATIVEdata listener call");
-					frames = (int)iter.next().floatValue();
-					current_frame = (int)iter.next().floatValue();
-					value = iter.next().floatValue();
-					//Log.i("HUGO", "Zro crossing Derivative " + Float.toString(value));
-					if (mBitmap != null) {
-						final Canvas canvas = mCanvas;
-						final Paint paint = mPaint;
-						float x = mWidth / frames * current_frame * 1.0f;
-						int valueColor = (int)(Math.abs(value * 255));
-						paint.setColor(Color.rgb(valueColor,valueColor, valueColor));
-						canvas.drawLine(x, 380, x, 389, paint);
-						invalidate();
+				//plotted as a blue wave form, from the min to the max of the frames of the column
+				TrackPyramid track = tracks[Descriptor.WAVEFORM.ordinal()];
+				if (track != null && track.get(from, to, range)) {
+					int y1 = waveTop + (int)((range[0] + 1.0f) * 0.5f * (waveBottom - waveTop)); //the wave goes from -1 to 1
+					int y2 = waveTop + (int)((range[1] + 1.0f) * 0.5f * (waveBottom - waveTop));
+					span(c, y1, y2, 0xFF0000FF);
+				}
+				
+				//a gap of the recording in the frames of the column, a red line over the waveform
+				int gap = Arrays.binarySearch(gapFrames, from);
+				if (gap < 0) gap = -gap - 1;
+				if (gap < gapFrames.length && gapFrames[gap] < to) span(c, waveTop, waveBottom, 0xFFFF0000);
+				
+				//this is plotted as a normal spectrogram win an yellow->orange->red colors, the loudest frame of the column.
+				//Each row of pixels shows the loudest of the bands under it, or a band takes several rows if there are few
+				final int rows = specBottom - specTop + 1;
+				if (spectrogram != null && spectrogram.get(from, to, null, intensities, null)) {
+					final int bins = spectrogram.getBins();
+					final int[] colors = Palette.SPECTRUM;
+					for (int r = 0; r < rows; r++) {
+						int first = r * bins / rows;
+						int last = Math.max(first + 1, (r + 1) * bins / rows);
+						int intensity = 0;
+						for (int i = first; i < last; i++) {
+							if (intensities[i] > intensity) intensity = intensities[i];
+						}
+						set(c, specBottom - r, colors[intensity]);
 					}
-					break;
 				}
+				
+				//this is plotted as a blue dot for each window on top of the spectrogram, the centroid is in bands
+				track = tracks[Descriptor.CENTROID.ordinal()];
+				if (track != null && track.get(from, to, range)) {
+					set(c, specBottom - (int)(range[2] * rows / config.getBins()), Palette.BLUE);
+				}
+				
+				//the rest as grayscale bars. The variations come raw, bar() takes them to -1 to 1
+				bar(c, from, to, Descriptor.CENTROID_VARIATION, 0, 255, true);
+				bar(c, from, to, Descriptor.ENERGY, 1, 10, false);
+				bar(c, from, to, Descriptor.ENERGY_VARIATION, 2, 255, true);
+				bar(c, from, to, Descriptor.ZERO_CROSSING, 3, 256 * 5, false);
+				bar(c, from, to, Descriptor.ZERO_CROSSING_VARIATION, 4, 255, true);
+				
+				//a descriptor plugged into the pipeline that we do not know, plotted as a grayscale bar
+				//after the known ones, one row per descriptor. Values expected between -1.0 and 1.0
+				for (int d = Descriptor.ZERO_CROSSING_VARIATION.ordinal() + 1; d < tracks.length; d++) {
+					int row = d - Descriptor.ZERO_CROSSING_VARIATION.ordinal() - 1;
+					bar(c, from, to, descriptors[d], KNOWN_BARS + row, 255, true);
+				}
+			}
+		}
+		
+		/**
+		 * A grayscale bar in the row of bars with the value of the frames of the column times scale
+		 * @param row 0 is the bar just below the spectrogram
+		 * @param signed true if the biggest absolute value counts, false for the max
+		 * 
+		 * A variation is divided first by the biggest one received so far
+		 */
+		private void bar(int c, int from, int to, Descriptor descriptor, int row, float scale, boolean signed) {
+			TrackPyramid track = tracks[descriptor.ordinal()];
+			if (track == null || !track.get(from, to, range)) return;
+			float value = signed ? Math.max(Math.abs(range[0]), Math.abs(range[1])) : range[1];
+			if (variations[descriptor.ordinal()]) value /= Math.max(track.getPeak(), Float.MIN_VALUE);
+			int y = barTop + row * barHeight;
+			span(c, y, y + barHeight - 2, Palette.GRAY[Palette.index(value * scale)]);
+		}
+		
+		/**
+		 * Split the height between the waveform, the spectrogram, the bars and the text
+		 */
+		private void layout(int h) {
+			int unknown = Math.max(0, tracks.length - Descriptor.ZERO_CROSSING_VARIATION.ordinal() - 1);
+			waveTop = h / 50;
+			waveBottom = h * 35 / 100;
+			specTop = waveBottom + 2;
+			specBottom = Math.max(specTop, h * 70 / 100);
+			barTop = specBottom + 1;
+			barHeight = Math.max(3, h / 48);
+			textTop = barTop + (KNOWN_BARS + unknown) * barHeight + (int)mPaint.getFontSpacing();
+		}
+		
+		private void span(int c, int y1, int y2, int color) {
+			int top = Math.max(Math.min(y1, y2), 0);
+			int bottom = Math.min(Math.max(y1, y2), mHeight - 1);
+			for (int y = top; y <= bottom; y++) {
+				pixels[y * TILE + c] = color;
 			}
 		}
+		
+		private void set(int c, int y, int color) {
+			if (y >= 0 && y < mHeight) pixels[y * TILE + c] = color;
+		}
 
 		/* (non-Javadoc)
 		 * @see android.view.View#onSizeChanged(int, int, int, int)
@@ -293,25 +693,106 @@ public class AnalyzerActivity extends Activity {
 		 */
 		@Override
 		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-			mBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
-			mCanvas.setBitmap(mBitmap);
-			mWidth = w;
-			mHeight = h;
+			synchronized (this) {
+				mWidth = w;
+				mHeight = h;
+				pixels = new int[TILE * h];
+				clearTiles();
+				for (int i = 0; i < freeTiles.size(); i++) {
+					freeTiles.get(i).recycle(); //the tiles of the old height are not good anymore
+				}
+				freeTiles.clear();
+				intensities = new int[Math.max(config.getBins(), spectrogram != null ? spectrogram.getBins() : 0)];
+				layout(h);
+				updateFramesPerPixel();
+				scrollTo(scroll);
+			}
 			super.onSizeChanged(w, h, oldw, oldh);
 		}
 
+		/**
+		 * @param gaps where audio is missing in the recording, they go to the frame they fall in
+		 */
+		public void setGaps(Discontinuities gaps) {
+			int[] frames = new int[gaps.size()];
+			int count = 0;
+			for (int i = 0; i < gaps.size(); i++) {
+				long sample = gaps.get(i).sample - config.getFirstSample();
+				if (sample >= 0) frames[count++] = (int)Math.min(sample / config.getHop(), Integer.MAX_VALUE);
+			}
+			synchronized (this) {
+				gapFrames = new int[count];
+				System.arraycopy(frames, 0, gapFrames, 0, count);
+				clearTiles();
+			}
+		}
+
+		/**
+		 * @param on show the Metrics on top of the analysis, or not
+		 */
+		public void showMetrics(boolean on) {
+			metrics = on;
+			invalidate();
+		}
+
+		@Override
+		protected void onDetachedFromWindow() {
+			redraw.cancel();
+			super.onDetachedFromWindow();
+		}
+
 		/* (non-Javadoc)
 		 * @see android.view.View#onDraw(android.graphics.Canvas)
-		 * Redraw the entire canvas on each call. Not a good idea!
+		 * Only the tiles on the screen are drawn, the ones already rendered come from the cache
 		 */
 		@Override
 		protected void onDraw(Canvas canvas) {
 			synchronized (this) {
-				if (mBitmap != null) {
-					final Canvas cavas = mCanvas;
-					canvas.drawBitmap(mBitmap, 0, 0, null);
+				if (pixels == null || frames == 0) return;
+				long drawStart = Metrics.start();
+				canvas.drawColor(Color.BLACK);
+				int first = scroll / TILE;
+				int last = Math.min((scroll + mWidth) / TILE, (int)(frames / framesPerPixel) / TILE);
+				for (int t = first; t <= last; t++) {
+					canvas.drawBitmap(getTile(t), t * TILE - scroll, 0, null);
+				}
+				
+				//the global values as text, they do not move
+				final Paint paint = mPaint;
+				paint.setColor(0xFFFFFFFF);
+				final int line = (int)paint.getFontSpacing();
+				final int rows = Math.max(3, summarized.size());
+				if (head != null) {
+					canvas.drawText("No Samples: " + nSamples, 1, textTop, paint);
+					float duration = (float)nSamples / channels / sampleRate;
+					canvas.drawText("Duration: " + duration, 1, textTop + line, paint);
+					//the averages come in the order of the pipeline: Centroid, Energy, Zero Crossing and whatever was added
+					for(int i = 0; i < headLength && i < summarized.size(); i++){
+						canvas.drawText(summarized.get(i).label + " Avg: " + head[i], mWidth / 2, textTop + i * line, paint);
+					}
 				}
+				//the frames of the view start at the first frame asked, not at the beginning of the recording
+				float seconds = config.getFrameSeconds(sampleRate * channels); //the hop counts the samples of every channel
+				float start = (config.getFirstFrame() + scroll * framesPerPixel) * seconds;
+				canvas.drawText("View: " + start + " s, x" + (1 << zoom), 1, textTop + rows * line, paint);
+				Metrics.DRAW.stop(drawStart);
+				if (metrics) drawMetrics(canvas, paint, line);
+			}
+		}
+		
+		/**
+		 * The metrics on a dark box at the top, and the next update in METRICS_INTERVAL
+		 */
+		private void drawMetrics(Canvas canvas, Paint paint, int line) {
+			metricLines.clear();
+			Metrics.report(metricLines);
+			paint.setColor(0xC0000000);
+			canvas.drawRect(0, 0, mWidth, (metricLines.size() + 1) * line, paint);
+			paint.setColor(0xFFFFFF00);
+			for (int i = 0; i < metricLines.size(); i++) {
+				canvas.drawText(metricLines.get(i), 1, (i + 1) * line, paint);
 			}
+			postInvalidateDelayed(METRICS_INTERVAL);
 		}
 	}
 }
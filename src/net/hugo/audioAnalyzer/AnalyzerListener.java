@@ -28,8 +28,6 @@
  */
 package net.hugo.audioAnalyzer;
 
-import java.util.ArrayList;
-
 /**
  * @author hugosg
  * 
@@ -40,11 +38,16 @@ import java.util.ArrayList;
 public interface AnalyzerListener {
 	
 	/**
-	 * @param list
+	 * @param record
 	 * 
-	 * Send of the values, please see the Analyzer code for proper protocol
+	 * Send of the values of one descriptor for one frame. The record is recycled
+	 * after the call, so copy the values if they are needed later
+	 */
+	void analyzePart(FrameRecord record);
+	/**
+	 * Called after each batch of analyzePart calls, a good moment to repaint
 	 */
-	void analyzePart(ArrayList<Float> list);
+	void analyzeFlush();
 	/**
 	 * Send of the Done state
 	 */
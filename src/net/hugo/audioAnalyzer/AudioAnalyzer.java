@@ -28,14 +28,19 @@
  */
 package net.hugo.audioAnalyzer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Rect;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
 import android.os.Bundle;
@@ -58,16 +63,27 @@ import android.widget.LinearLayout;
  * It implements the RecorderListener so it could get the value of the
  * amplitude during recording.
  * 
- * It implements PlayerListener so it pops a dialog during the time it takes
- * to load the file into memory
+ * It implements PlayerListener so it pops a dialog with the position of the
+ * playhead while playing
+ * 
+ * The LiveView gets the frames analyzed while recording and shows a scrolling
+ * spectrogram with the centroid, energy and zero crossing on top.
+ * 
+ * Play and analyze work on the selected recording of the RecordingLibrary, the
+ * last one recorded or the one picked in the LibraryActivity.
  * 
  */
 public class AudioAnalyzer extends Activity implements RecorderListener, PlayerListener {
 
 	private Recorder myRecorder;
 	private AudioShape audioShape;
-	private Button recButton, playButton, stopButton, analyzerButton;
+	private LiveView liveView;
+	private Button recButton, playButton, stopButton, analyzerButton, libraryButton;
 	private ProgressDialog dialog;
+	private Player myPlayer;
+	
+	private static final int PICK_RECORDING = 1;
+	private RecordingLibrary.Recording selected; //what play and analyze use, null if nothing
 
 	public class AudioShape extends View {
 		
@@ -106,6 +122,155 @@ public class AudioAnalyzer extends Activity implements RecorderListener, PlayerL
 		}
 	}
 	
+	/**
+	 * Scrolling spectrogram of the last seconds of the recording. Each column is
+	 * FRAMES_PER_COLUMN frames, the newest column on the right. The bitmap is used
+	 * as a ring: a new column replaces the oldest one, and onDraw draws the two
+	 * parts in order, so nothing is moved while recording. The columns are built
+	 * with the colors of the Palette and redrawn at most once per display refresh.
+	 */
+	public class LiveView extends View implements AnalyzerListener {
+		
+		private static final int FRAMES_PER_COLUMN = 4; //about 86 columns per second
+		
+		private Bitmap mBitmap;
+		private int mWidth, mHeight;
+		private int[] column; //pixels of the column being built
+		private int next = 0; //where the next column goes in the bitmap
+		private final Rect src = new Rect();
+		private final Rect dst = new Rect();
+		private final RedrawScheduler redraw = new RedrawScheduler(this);
+		
+		//values of the frames of the current column
+		private int current = -1;
+		private float[] spectrum = new float[0]; //grows to the bands of the analysis
+		private int bins = 0;
+		private float centroid, energy, zeroCrossing;
+		private int count;
+		
+		public LiveView(Context context) {
+			super(context);
+		}
+		
+		@Override
+		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+			if (w <= 0 || h <= 0) return;
+			if (mBitmap != null) mBitmap.recycle();
+			mBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
+			mBitmap.eraseColor(Color.BLACK);
+			mWidth = w;
+			mHeight = h;
+			column = new int[h];
+			next = 0;
+		}
+		
+		@Override
+		protected void onDraw(Canvas canvas) {
+			if (mBitmap == null) return;
+			//oldest columns, from next to the end, go on the left
+			src.set(next, 0, mWidth, mHeight);
+			dst.set(0, 0, mWidth - next, mHeight);
+			canvas.drawBitmap(mBitmap, src, dst, null);
+			src.set(0, 0, next, mHeight);
+			dst.set(mWidth - next, 0, mWidth, mHeight);
+			canvas.drawBitmap(mBitmap, src, dst, null);
+		}
+		
+		/**
+		 * Start again, for a new recording
+		 */
+		public void clear() {
+			if (mBitmap != null) mBitmap.eraseColor(Color.BLACK);
+			next = 0;
+			current = -1;
+			count = 0;
+			redraw.request();
+		}
+		
+		@Override
+		public void analyzePart(FrameRecord record) {
+			int c = record.frame / FRAMES_PER_COLUMN;
+			if (c != current) {
+				drawColumn();
+				current = c;
+			}
+			switch (record.descriptor) {
+			case SPECTRUM:
+				//the loudest value of each bin in the column
+				if (record.length > spectrum.length) spectrum = new float[record.length];
+				bins = record.length;
+				for (int i = 0; i < bins; i++) {
+					if (record.values[i] > spectrum[i]) spectrum[i] = record.values[i];
+				}
+				count++;
+				break;
+			case CENTROID:
+				centroid += record.values[0];
+				break;
+			case ENERGY:
+				energy += record.values[0];
+				break;
+			case ZERO_CROSSING:
+				zeroCrossing += record.values[0];
+				break;
+			default:
+				break;
+			}
+		}
+		
+		@Override
+		public void analyzeFlush() {
+			redraw.request();
+		}
+		
+		@Override
+		public void analyzeDone() {
+			drawColumn();
+			redraw.request();
+		}
+		
+		/**
+		 * Put the current column in the bitmap and get ready for the next one
+		 */
+		private void drawColumn() {
+			if (mBitmap == null || count == 0 || bins == 0) {
+				resetColumn();
+				return;
+			}
+			final int h = mHeight;
+			final int[] column = this.column;
+			//spectrogram with the colors of the AnalyzerActivity, low bins at the bottom
+			final int[] colors = Palette.SPECTRUM;
+			for (int y = 0; y < h; y++) {
+				int bin = (h - 1 - y) * bins / h;
+				column[y] = colors[SpectrogramPyramid.intensity(spectrum[bin])];
+			}
+			//the descriptors as dots, averaged over the frames of the column
+			column[rowOf(centroid / count / bins)] = Palette.BLUE;
+			column[rowOf(energy / count / 25)] = Color.WHITE; //same guess of the max as the AnalyzerActivity
+			column[rowOf(zeroCrossing / count)] = Palette.GREEN;
+			mBitmap.setPixels(column, 0, 1, next, 0, 1, h);
+			next = (next + 1) % mWidth;
+			resetColumn();
+		}
+		
+		/**
+		 * @param value between 0.0 and 1.0, from the bottom
+		 */
+		private int rowOf(float value) {
+			if (!(value > 0)) value = 0; //NaN of a silent centroid too
+			return mHeight - 1 - (int)(Math.min(value, 1) * (mHeight - 1));
+		}
+		
+		private void resetColumn() {
+			for (int i = 0; i < spectrum.length; i++) {
+				spectrum[i] = 0;
+			}
+			centroid = energy = zeroCrossing = 0;
+			count = 0;
+		}
+	}
+	
 	/** Called when the activity is first created. */	
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
@@ -147,46 +312,111 @@ public class AudioAnalyzer extends Activity implements RecorderListener, PlayerL
 			}
 		});
 		
+		libraryButton = (Button) findViewById(R.id.libraryButton);
+		libraryButton.setOnClickListener(new View.OnClickListener() {
+			public void onClick(View view) {
+				startActivityForResult(new Intent(AudioAnalyzer.this, LibraryActivity.class), PICK_RECORDING);
+			}
+		});
+		
+		openLibrary();
+		
+		liveView = new LiveView(this);
+		ll.addView(liveView, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.FILL_PARENT, 128));
+		
 		audioShape = new AudioShape(this);
 		ll.addView(audioShape);
 	}
 
+	/**
+	 * Select the newest recording, after moving the one of before the library into it
+	 */
+	private void openLibrary(){
+		try {
+			RecordingLibrary library = Storage.getLibrary();
+			File[] old = { Storage.getRecording(), Storage.getRawRecording() };
+			for (int i = 0; i < old.length; i++) {
+				if (old[i].exists()) {
+					try {
+						library.importFile(old[i]);
+					} catch (IOException e) {
+						Log.e("HUGO", "Failed importing " + old[i], e);
+					}
+				}
+			}
+			ArrayList<RecordingLibrary.Recording> newest = library.list(null, RecordingLibrary.BY_DATE);
+			select(newest.size() > 0 ? newest.get(0) : null);
+		} catch (IOException e) {
+			Log.e("HUGO", "Failed opening the library", e);
+			select(null);
+		}
+	}
+	
+	private void select(RecordingLibrary.Recording recording){
+		selected = recording;
+		playButton.setEnabled(recording != null);
+		analyzerButton.setEnabled(recording != null);
+	}
+	
+	@Override
+	protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+		if (requestCode == PICK_RECORDING && resultCode == RESULT_OK && data != null) {
+			try {
+				RecordingLibrary.Recording recording = Storage.getLibrary().get(data.getLongExtra("recording", -1));
+				if (recording != null) select(recording);
+			} catch (IOException e) {
+				Log.e("HUGO", "Failed opening the library", e);
+			}
+		}
+	}
+
 	private void startRecording(){
 		recButton.setEnabled(false);
 		stopButton.setEnabled(true);
 		playButton.setEnabled(false);
 		analyzerButton.setEnabled(false);
+		libraryButton.setEnabled(false);
+		liveView.clear();
 		myRecorder = new Recorder();
 		myRecorder.addRecorderListener(this);
+		myRecorder.setLiveListener(liveView);
 		myRecorder.execute(this);
 	}
 
 	private void playRecording(){
-		Player myPlayer = new Player();
+		myPlayer = new Player();
+		myPlayer.setFile(selected.file);
 		myPlayer.addPlayerListener(this);
 		myPlayer.execute(this);
 	}
 
 	private void analyzeRecording(){
 		Intent intent = new Intent(this, AnalyzerActivity.class);
+		intent.putExtra("recording", selected.id);
 		startActivity(intent);
 	}
 
 	private void stopRecording(){
-		recButton.setEnabled(true);
 		stopButton.setEnabled(false);
-		playButton.setEnabled(true);
-		analyzerButton.setEnabled(true);
 		myRecorder.stopRecording();
+		//the rest of the buttons wait for recordDone, the file may still be being written
 	}
 
 	@Override
-	public void recordPart(ArrayList<Float> arrayList) {
+	public void recordPart(float level) {
 		Log.i("HUGO", "getting value from Recorder");
-		audioShape.setSize(arrayList.get(0).floatValue());
+		audioShape.setSize(level);
 		audioShape.invalidate();
 	}
 
+	@Override
+	public void recordDone() {
+		recButton.setEnabled(true);
+		libraryButton.setEnabled(true);
+		RecordingLibrary.Recording recording = myRecorder.getRecording();
+		select(recording != null ? recording : selected);
+	}
+
 	@Override
 	public void postPlayer() {
 		dialog.dismiss();
@@ -194,6 +424,23 @@ public class AudioAnalyzer extends Activity implements RecorderListener, PlayerL
 
 	@Override
 	public void prePlayer() {
-		dialog = ProgressDialog.show(this, "", "Playing. Please wait...", true);
+		dialog = new ProgressDialog(this);
+		dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+		dialog.setMessage("Playing...");
+		dialog.setMax(1000); //per mil of the recording
+		dialog.setOnCancelListener(new DialogInterface.OnCancelListener(){
+			@Override
+			public void onCancel(DialogInterface d) {
+				myPlayer.cancel(false); //back stops the playing too, postPlayer is not called then
+			}
+		});
+		dialog.show();
+	}
+
+	@Override
+	public void playProgress(long position, long length, int sampleRate) {
+		if (length <= 0 || sampleRate <= 0) return;
+		dialog.setProgress((int)(Math.min(position, length) * 1000 / length));
+		dialog.setMessage("Playing " + (position / sampleRate) + " of " + (length / sampleRate) + " s");
 	}
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author hugosg
+ * 
+ * Analysis of a whole directory of recordings on a desktop JVM, for going over
+ * an archive again without the phone. Nothing of Android is used:
+ * 
+ * 	java -cp classes net.hugo.audioAnalyzer.BatchAnalyzer input output [threads] [fftSize hop window [precision]]
+ * 
+ * Every file of the input directory (raw .pcm or compressed .hpcm) is analyzed
+ * by the AnalysisEngine, several files at the same time, one per thread. For
+ * each one the output directory gets a FrameStore with the descriptor tracks
+ * (name.frames, compact), and summary.tsv gets a line with its length, the
+ * averages of the HEAD and then the standard deviation, median and 95th
+ * percentile of the same descriptors. At the end it prints how many files and
+ * samples per second were analyzed.
+ */
+public class BatchAnalyzer {
+
+	private static final String SUMMARY = "summary.tsv";
+
+	private final FramePipeline pipeline;
+	private final AnalysisConfig config;
+	private final File output;
+
+	/**
+	 * What came out of a file
+	 */
+	private static class Result {
+		String name;
+		long samples;
+		int sampleRate;
+		int frames;
+		float[] summary;
+		RunningStats[] stats; //of the same descriptors as the summary
+		String error; //null if it went fine
+	}
+
+	public BatchAnalyzer(FramePipeline pipeline, AnalysisConfig config, File output){
+		this.pipeline = pipeline;
+		this.config = config;
+		this.output = output;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length != 2 && args.length != 3 && args.length != 6 && args.length != 7){
+			System.err.println("usage: BatchAnalyzer input output [threads] [fftSize hop window [precision]]");
+			System.exit(1);
+		}
+		File input = new File(args[0]);
+		File output = new File(args[1]);
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		AnalysisConfig config = new AnalysisConfig();
+		if(args.length >= 6){
+			config.setFftSize(Integer.parseInt(args[3]));
+			config.setHop(Integer.parseInt(args[4]));
+			config.setWindow(WindowType.valueOf(args[5]));
+		}
+		if(args.length == 7) config.setPrecision(Precision.valueOf(args[6]));
+		File[] files = input.listFiles();
+		if(files == null){
+			System.err.println("Not a directory: " + input);
+			System.exit(1);
+		}
+		if(!output.isDirectory() && !output.mkdirs()){
+			System.err.println("Can not create " + output);
+			System.exit(1);
+		}
+		Arrays.sort(files);
+		ArrayList<File> recordings = new ArrayList<File>();
+		for(int i = 0; i < files.length; i++){
+			String name = files[i].getName();
+			if(files[i].isFile() && (name.endsWith(".pcm") || name.endsWith(".hpcm"))) recordings.add(files[i]);
+		}
+		new BatchAnalyzer(FramePipeline.createDefault(), config, output).run(recordings, threads);
+	}
+
+	/**
+	 * Analyze the files, threads at a time, and write the summary
+	 */
+	public void run(ArrayList<File> files, int threads) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+		ArrayList<Future<Result>> results = new ArrayList<Future<Result>>();
+		for(int i = 0; i < files.size(); i++){
+			final File file = files.get(i);
+			results.add(executor.submit(new Callable<Result>(){
+				@Override
+				public Result call(){
+					return analyze(file);
+				}
+			}));
+		}
+		executor.shutdown();
+
+		//the summary in the order of the files, each line as soon as its file is done
+		PrintWriter summary = new PrintWriter(new FileWriter(new File(output, SUMMARY)));
+		long samples = 0;
+		int done = 0;
+		try {
+			summary.print("file\tsamples\tseconds\tframes");
+			ArrayList<Descriptor> summarized = pipeline.getSummarized();
+			for(int i = 0; i < summarized.size(); i++){
+				summary.print("\t" + summarized.get(i).label);
+			}
+			for(int i = 0; i < summarized.size(); i++){
+				String label = summarized.get(i).label;
+				summary.print("\t" + label + " sd\t" + label + " median\t" + label + " p95");
+			}
+			summary.println();
+			for(int i = 0; i < results.size(); i++){
+				Result result;
+				try {
+					result = results.get(i).get();
+				} catch (ExecutionException e) {
+					result = new Result();
+					result.name = files.get(i).getName();
+					result.error = String.valueOf(e.getCause());
+				}
+				if(result.error != null){
+					System.err.println(result.name + ": " + result.error);
+					continue;
+				}
+				summary.print(result.name + "\t" + result.samples + "\t" + (float)result.samples / result.sampleRate + "\t" + result.frames);
+				for(int s = 0; s < result.summary.length; s++){
+					summary.print("\t" + result.summary[s]);
+				}
+				for(int s = 0; s < result.stats.length; s++){
+					RunningStats stats = result.stats[s];
+					summary.print("\t" + (float)stats.getStandardDeviation() + "\t" + (float)stats.getQuantile(0) + "\t" + (float)stats.getQuantile(1));
+				}
+				summary.println();
+				samples += result.samples;
+				done++;
+			}
+		} finally {
+			summary.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(done + " of " + files.size() + " files, " + samples + " samples in " + (float)seconds + " s");
+		System.out.println((float)(done / seconds) + " files/s, " + (float)(samples / seconds) + " samples/s");
+		System.out.print(Metrics.report()); //where the time went, added over all the threads
+	}
+
+	/**
+	 * Analyze a file in the calling thread, its frames go to the output directory
+	 */
+	private Result analyze(File file){
+		Result result = new Result();
+		result.name = file.getName();
+		PcmSource source = null;
+		FrameStore.Writer store = null;
+		try {
+			source = PcmFiles.open(file);
+			result.samples = source.length();
+			result.sampleRate = source.getSampleRate();
+			result.frames = config.getFrames(result.samples);
+			if(result.frames < 1) throw new IOException("too short, " + result.samples + " samples");
+			FrameMerger merger = new FrameMerger(pipeline, config.getBins(), result.frames, null);
+			final FrameStore.Writer tracks = new FrameStore.Writer(new File(output, result.name + ".frames"), config, pipeline, merger.getSizes(), true);
+			store = tracks;
+			AnalysisEngine engine = new AnalysisEngine(pipeline, config, 1); //the files are the parallel part
+			source.seek(config.getFirstSample());
+			int merged = engine.compute(source, merger, result.frames, new AnalysisEngine.BlockListener(){
+				@Override
+				public void merged(FrameBlock block) throws IOException {
+					tracks.writeBlock(block);
+				}
+			});
+			store = null;
+			tracks.finish(result.samples, file.lastModified(), 0, merged == result.frames);
+			result.frames = merged;
+			result.summary = merger.getSummary();
+			result.stats = merger.getStats();
+		} catch (Exception e) {
+			result.error = e.toString();
+			if(store != null){
+				store.abort();
+				store.getFile().delete();
+			}
+		} finally {
+			if(source != null){
+				try {
+					source.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return result;
+	}
+}
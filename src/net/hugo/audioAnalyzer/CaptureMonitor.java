@@ -0,0 +1,180 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Watches the reads of the capture loop of the Recorder. Nothing of Android,
+ * it only gets what each read returned and when.
+ * 
+ * A negative result is an error code, that audio is gone. The overruns are
+ * found with the clock: since the first read the microphone gave rate samples
+ * per second, and if we got fewer than that minus what the buffer of the device
+ * can still hold, the difference was lost. The lost samples are then counted as if
+ * read so the clock starts again from there, and when we are ahead of the clock
+ * it starts again too. Every gap goes to the Discontinuities.
+ * 
+ * The two clocks are never exactly the same. A microphone a bit faster than
+ * System.nanoTime() puts us ahead, which starts the clock again, but a slower one
+ * puts us behind a little more every second, until it looks like an overrun. So
+ * the least we were behind in each second is taken as drift of the clocks, not as
+ * our delay, and counted as read, at most MAX_DRIFT of the rate per second so a real
+ * delay is not hidden. Both the overruns and the size of the reads look at what is
+ * left.
+ * 
+ * The size of the reads goes with the load: it doubles, up to half the buffer
+ * of the device, while we are behind the clock by more than one read, and it
+ * halves again after a second without being behind, for a small latency.
+ */
+public class CaptureMonitor {
+
+	private final int sampleRate;
+	private final int minRead;
+	private final int maxRead;
+	private final int deviceBuffer;
+	private final int minGap; //shorter than this is the jitter of the clocks, not a gap
+	private static final int MAX_DRIFT = 1000; //1 / 1000 of the rate, 1000 ppm, far more than any microphone
+	private final int maxDrift; //samples per second the clocks can drift apart
+	private final Discontinuities gaps = new Discontinuities();
+
+	private int readSize;
+	private long written = 0; //samples of the recording
+	private long counted = 0; //samples of the recording plus the lost ones since the clock started
+	private long startNanos = -1; //when counted was 0, -1 before the first read
+	private int calm = 0; //samples read since we were last behind
+	private long leastBehind = Long.MAX_VALUE; //in the current second
+	private int second = 0; //samples read in the current second
+
+	/**
+	 * @param sampleRate samples per second of the microphone
+	 * @param minRead smallest read, in samples
+	 * @param deviceBuffer samples the AudioRecord keeps while we do not read
+	 */
+	public CaptureMonitor(int sampleRate, int minRead, int deviceBuffer){
+		this.sampleRate = sampleRate;
+		this.deviceBuffer = deviceBuffer;
+		this.maxRead = Math.max(deviceBuffer / 2, 1);
+		this.minRead = Math.max(Math.min(minRead, maxRead), 1);
+		this.minGap = sampleRate / 100;
+		this.maxDrift = Math.max(sampleRate / MAX_DRIFT, 1);
+		this.readSize = this.minRead;
+	}
+
+	/**
+	 * @return how many samples to ask for in the next read
+	 */
+	public int getReadSize(){
+		return readSize;
+	}
+
+	/**
+	 * @return the largest read, the buffer of the capture loop must have this size
+	 */
+	public int getMaxReadSize(){
+		return maxRead;
+	}
+
+	/**
+	 * @return samples of the recording so far
+	 */
+	public long getWritten(){
+		return written;
+	}
+
+	public Discontinuities getDiscontinuities(){
+		return gaps;
+	}
+
+	/**
+	 * @param result what the read returned, samples or a negative error code
+	 * @param nanos System.nanoTime() once the read returned
+	 * @return true if there is a gap before the samples of this read
+	 */
+	public boolean read(int result, long nanos){
+		if(result < 0){
+			gaps.add(written, 0, Discontinuities.ERROR);
+			Metrics.DROPPED_BUFFERS.add(1);
+			return true;
+		}
+		if(startNanos < 0){
+			//the clock starts with the first samples
+			startNanos = nanos;
+			counted = 0;
+		}
+		boolean gap = false;
+		long expected = (nanos - startNanos) * sampleRate / 1000000000L;
+		long behind = expected - counted - result; //still in the device, or lost
+		long kept = deviceBuffer - result; //what the device can still have after this read
+		if(behind - kept > minGap){
+			//the device could not keep more than its buffer, the rest is gone just before these samples
+			long lost = behind - kept;
+			gaps.add(written, lost, Discontinuities.OVERRUN);
+			Metrics.DROPPED_BUFFERS.add(1);
+			counted += lost;
+			behind = kept;
+			gap = true;
+		} else if(behind < 0){
+			startNanos = nanos;
+			counted = -result;
+			behind = 0;
+		}
+		written += result;
+		counted += result;
+		drift(behind, result);
+		adapt(behind, result);
+		return gap;
+	}
+
+	/**
+	 * Take what we were always behind in the last second as the clocks drifting apart
+	 */
+	private void drift(long behind, int result){
+		if(behind < leastBehind) leastBehind = behind;
+		second += result;
+		if(second >= sampleRate){
+			if(leastBehind > 0) counted += Math.min(leastBehind, maxDrift);
+			leastBehind = Long.MAX_VALUE;
+			second = 0;
+		}
+	}
+
+	private void adapt(long behind, int result){
+		if(behind > readSize){
+			readSize = Math.min(readSize * 2, maxRead);
+			calm = 0;
+		} else {
+			calm += result;
+			if(calm >= sampleRate && readSize > minRead){
+				readSize = Math.max(readSize / 2, minRead);
+				calm = 0;
+			}
+		}
+	}
+}
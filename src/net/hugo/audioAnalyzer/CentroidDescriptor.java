@@ -0,0 +1,75 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Spectral centroid in bins, the "center of mass" of the spectrum
+ * http://en.wikipedia.org/wiki/Spectral_centroid
+ */
+public class CentroidDescriptor implements FrameDescriptor {
+
+	@Override
+	public Descriptor getDescriptor(){
+		return Descriptor.CENTROID;
+	}
+
+	@Override
+	public Descriptor getVariation(){
+		return Descriptor.CENTROID_VARIATION;
+	}
+
+	@Override
+	public boolean isSummarized(){
+		return true;
+	}
+
+	@Override
+	public int getNeeds(){
+		return MAGNITUDE;
+	}
+
+	@Override
+	public int getSize(int bins){
+		return 1;
+	}
+
+	@Override
+	public void compute(FrameData frame, float[] out){
+		final double[] mag = frame.magnitude;
+		double centroidFnXn = 0; //magnitude of each bin multipied by it's index, it does the trick!
+		double centroidXn = 0; //addition of the magnitudes of all the bins
+		for(int i = 0; i < frame.bins; i++){
+			centroidFnXn += i * mag[i];
+			centroidXn += mag[i];
+		}
+		out[0] = (float)(centroidFnXn / centroidXn);
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author hugosg
+ * 
+ * The recording format: a header that says what the audio is, then the samples
+ * compressed without loss in blocks of BLOCK_FRAMES frames (see PcmCodec), then an
+ * index with where each block starts. Speech and quiet field recordings usually
+ * take about half of the raw 16 bit samples.
+ * 
+ * Everything is big endian, as the raw recordings. The header:
+ * 
+ * 	MAGIC, VERSION, sample rate, channels, bits per sample (16), frames per block,
+ * 	then samples (long), blocks and where the index starts (long)
+ * 
+ * Each block is its length in bytes and its frames (ints) followed by the encoded
+ * samples. All the blocks but the last one are full, so the block of a sample is
+ * known without reading anything, and the index gives where it is.
+ * 
+ * The tail of the header and the index are written when the Writer is closed. A
+ * recording that was not closed (the phone died) has no index, the blocks are
+ * found one by one reading their lengths, see CompressedPcmSource.
+ */
+public class CompressedPcm {
+
+	static final int MAGIC = 0x4850434D; //"HPCM"
+	static final int VERSION = 1;
+	static final int BLOCK_FRAMES = 4096;
+	static final int HEAD = 6 * 4; //the fixed part
+	static final int TAIL = 8 + 4 + 8; //samples, blocks, index
+	static final int HEADER = HEAD + TAIL;
+	static final int BLOCK_HEADER = 4 + 4; //bytes, frames
+
+	/**
+	 * @return true if the file starts as a compressed recording
+	 */
+	public static boolean isCompressed(File file){
+		if(file.length() < HEADER) return false;
+		try {
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try {
+				return in.readInt() == MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Compresses the samples as they come, a block at a time
+	 */
+	public static class Writer {
+
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final int channels;
+		private final PcmCodec codec;
+		private final short[] block; //samples waiting for a full block
+		private int filled = 0;
+		private final byte[] encoded;
+		private final ByteBuffer bytes; //wraps encoded
+		private long[] index = new long[64]; //where each block starts
+		private int blocks = 0;
+		private long position = HEADER;
+		private long samples = 0;
+
+		/**
+		 * @param file where to write, it is created again if it exists
+		 * @param sampleRate of the audio
+		 * @param channels of the audio, the samples come interleaved
+		 */
+		public Writer(File file, int sampleRate, int channels) throws IOException {
+			if(file.exists()) file.delete();
+			this.file = new RandomAccessFile(file, "rw");
+			this.channel = this.file.getChannel();
+			this.channels = channels;
+			codec = new PcmCodec(BLOCK_FRAMES);
+			block = new short[BLOCK_FRAMES * channels];
+			encoded = new byte[BLOCK_HEADER + Math.max(PcmCodec.maxBytes(BLOCK_FRAMES, channels), 8 * 1024)];
+			bytes = ByteBuffer.wrap(encoded).order(ByteOrder.BIG_ENDIAN);
+
+			//header, the tail is left empty until close()
+			bytes.clear();
+			bytes.putInt(MAGIC).putInt(VERSION).putInt(sampleRate).putInt(channels).putInt(16).putInt(BLOCK_FRAMES);
+			for(int i = 0; i < TAIL; i++){
+				bytes.put((byte)0);
+			}
+			bytes.flip();
+			writeBytes(0);
+		}
+
+		/**
+		 * @return samples written so far
+		 */
+		public long getSamples(){
+			return samples + filled;
+		}
+
+		/**
+		 * Add the samples, the blocks are compressed and written as they get full
+		 */
+		public void write(short[] src, int off, int len) throws IOException {
+			while(len > 0){
+				int n = Math.min(len, block.length - filled);
+				System.arraycopy(src, off, block, filled, n);
+				filled += n;
+				off += n;
+				len -= n;
+				if(filled == block.length) writeBlock();
+			}
+		}
+
+		/**
+		 * Write the last block, the index and the header, and close the file. An
+		 * incomplete frame at the end is left out
+		 */
+		public void close() throws IOException {
+			try {
+				filled -= filled % channels;
+				if(filled > 0) writeBlock();
+				//the index
+				long indexStart = position;
+				int at = 0;
+				bytes.clear();
+				while(at < blocks){
+					if(bytes.remaining() < 8){
+						bytes.flip();
+						writeBytes(position);
+						bytes.clear();
+					}
+					bytes.putLong(index[at++]);
+				}
+				bytes.flip();
+				writeBytes(position);
+				//and the tail of the header
+				bytes.clear();
+				bytes.putLong(samples).putInt(blocks).putLong(indexStart);
+				bytes.flip();
+				writeBytes(HEAD);
+			} finally {
+				channel.close();
+				file.close();
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			int frames = filled / channels;
+			int length = codec.encode(block, 0, frames, channels, encoded, BLOCK_HEADER);
+			bytes.clear();
+			bytes.putInt(length).putInt(frames);
+			bytes.clear();
+			bytes.limit(BLOCK_HEADER + length);
+			if(blocks == index.length){
+				long[] bigger = new long[index.length * 2];
+				System.arraycopy(index, 0, bigger, 0, blocks);
+				index = bigger;
+			}
+			index[blocks++] = position;
+			writeBytes(position);
+			samples += filled;
+			filled = 0;
+		}
+
+		/**
+		 * Write what is in bytes at where, position moves if it is at the end of the file
+		 */
+		private void writeBytes(long where) throws IOException {
+			long at = where;
+			while(bytes.hasRemaining()){
+				at += channel.write(bytes, at);
+			}
+			if(at > position) position = at;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author hugosg
+ * 
+ * PcmSource for the recordings written by CompressedPcm.Writer. The block with
+ * the position is found in the index, read and decoded, and kept decoded, so
+ * reading the recording from start to end decodes each block once.
+ * 
+ * A recording without index, because it was never closed, is still read: the
+ * blocks are found going through their lengths, up to the first one that is not
+ * complete.
+ */
+public class CompressedPcmSource implements PcmSource {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int sampleRate;
+	private final int channels;
+	private final int blockSamples; //samples of a full block, all channels
+	private final long length;
+	private long[] index; //where each block starts
+	private int blocks;
+	private long position = 0;
+
+	private final PcmCodec codec;
+	private final short[] decoded;
+	private int decodedBlock = -1;
+	private int decodedSamples = 0;
+	private final byte[] encoded;
+
+	public CompressedPcmSource(File f) throws IOException {
+		file = new RandomAccessFile(f, "r");
+		channel = file.getChannel();
+		try {
+			ByteBuffer head = ByteBuffer.allocate(CompressedPcm.HEADER).order(ByteOrder.BIG_ENDIAN);
+			readFully(head, 0);
+			if(head.getInt() != CompressedPcm.MAGIC || head.getInt() != CompressedPcm.VERSION) throw new IOException("Not a compressed recording: " + f);
+			sampleRate = head.getInt();
+			channels = head.getInt();
+			int bits = head.getInt();
+			int blockFrames = head.getInt();
+			if(channels <= 0 || bits != 16 || blockFrames <= 0 || blockFrames > 1 << 20) throw new IOException("Broken recording: " + f);
+			long samples = head.getLong();
+			blocks = head.getInt();
+			long indexStart = head.getLong();
+			blockSamples = blockFrames * channels;
+			codec = new PcmCodec(blockFrames);
+			decoded = new short[blockSamples];
+			encoded = new byte[CompressedPcm.BLOCK_HEADER + PcmCodec.maxBytes(blockFrames, channels)];
+			if(indexStart > 0 && blocks >= 0 && indexStart + blocks * 8L <= channel.size()){
+				index = new long[Math.max(blocks, 1)];
+				ByteBuffer bytes = ByteBuffer.allocate(blocks * 8).order(ByteOrder.BIG_ENDIAN);
+				readFully(bytes, indexStart);
+				for(int b = 0; b < blocks; b++){
+					index[b] = bytes.getLong();
+				}
+				length = samples;
+			} else {
+				length = scan();
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the samples of the complete blocks, their starts go to the index
+	 */
+	private long scan() throws IOException {
+		index = new long[64];
+		blocks = 0;
+		long samples = 0;
+		long at = CompressedPcm.HEADER;
+		long size = channel.size();
+		ByteBuffer head = ByteBuffer.allocate(CompressedPcm.BLOCK_HEADER).order(ByteOrder.BIG_ENDIAN);
+		while(at + CompressedPcm.BLOCK_HEADER <= size){
+			head.clear();
+			readFully(head, at);
+			int bytes = head.getInt();
+			int frames = head.getInt();
+			if(bytes <= 0 || bytes > encoded.length - CompressedPcm.BLOCK_HEADER || frames <= 0 || frames * channels > blockSamples) break;
+			if(at + CompressedPcm.BLOCK_HEADER + bytes > size) break; //cut in the middle
+			if(blocks == index.length){
+				long[] bigger = new long[index.length * 2];
+				System.arraycopy(index, 0, bigger, 0, blocks);
+				index = bigger;
+			}
+			index[blocks++] = at;
+			samples += frames * channels;
+			at += CompressedPcm.BLOCK_HEADER + bytes;
+			if(frames * channels < blockSamples) break; //only the last block is not full
+		}
+		return samples;
+	}
+
+	@Override
+	public int getSampleRate(){
+		return sampleRate;
+	}
+
+	@Override
+	public int getChannels(){
+		return channels;
+	}
+
+	@Override
+	public long length(){
+		return length;
+	}
+
+	@Override
+	public long position(){
+		return position;
+	}
+
+	@Override
+	public void seek(long sample){
+		position = Math.max(0, Math.min(sample, length));
+	}
+
+	@Override
+	public int read(short[] dst, int off, int len) throws IOException {
+		int read = read(position, dst, off, len);
+		if(read > 0) position += read;
+		return read;
+	}
+
+	@Override
+	public int read(long position, short[] dst, int off, int len) throws IOException {
+		if(position >= length) return -1;
+		int total = (int)Math.min(len, length - position);
+		int done = 0;
+		while(done < total){
+			long sample = position + done;
+			int block = (int)(sample / blockSamples);
+			decode(block);
+			int inBlock = (int)(sample - (long)block * blockSamples);
+			int n = Math.min(total - done, decodedSamples - inBlock);
+			if(n <= 0) throw new IOException("Broken recording, block " + block + " too short");
+			System.arraycopy(decoded, inBlock, dst, off + done, n);
+			done += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Make sure the block is the one decoded
+	 */
+	private void decode(int block) throws IOException {
+		if(block == decodedBlock) return;
+		if(block >= blocks) throw new IOException("Broken recording, no block " + block);
+		decodedBlock = -1;
+		ByteBuffer head = ByteBuffer.wrap(encoded, 0, CompressedPcm.BLOCK_HEADER).order(ByteOrder.BIG_ENDIAN);
+		readFully(head, index[block]);
+		int bytes = head.getInt();
+		int frames = head.getInt();
+		if(bytes <= 0 || bytes > encoded.length - CompressedPcm.BLOCK_HEADER || frames <= 0 || frames * channels > blockSamples) throw new IOException("Broken recording, block " + block);
+		ByteBuffer body = ByteBuffer.wrap(encoded, CompressedPcm.BLOCK_HEADER, bytes);
+		readFully(body, index[block] + CompressedPcm.BLOCK_HEADER);
+		codec.decode(encoded, CompressedPcm.BLOCK_HEADER, bytes, decoded, 0, frames, channels);
+		decodedSamples = frames * channels;
+		decodedBlock = block;
+	}
+
+	private void readFully(ByteBuffer buffer, long at) throws IOException {
+		while(buffer.hasRemaining()){
+			int n = channel.read(buffer, at);
+			if(n < 0) throw new IOException("Compressed recording too short");
+			at += n;
+		}
+		buffer.flip();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+		file.close();
+	}
+}
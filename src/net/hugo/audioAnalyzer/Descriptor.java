@@ -0,0 +1,70 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * The kind of values carried by a FrameRecord. It replaces the numbers
+ * (0, 1, 2, 3, 35, 4, 45, 5, 55) that used to go as the first Float of the lists
+ * sent from the Analyzer to the AnalyzerListener.
+ */
+public enum Descriptor {
+	/** Sent once at the end, the values are the averages of the centroid, energy and zero crossing */
+	HEAD("Head"),
+	/** One sample per frame, between -1.0 and 1.0 */
+	WAVEFORM("Waveform"),
+	/** Compressed magnitude of the bins of the frame, fft_size / 2 values */
+	SPECTRUM("Spectrum"),
+	/** Spectral centroid in bins */
+	CENTROID("Centroid"),
+	/** Derivative of the centroid over time, normalized to -1.0, 1.0 */
+	CENTROID_VARIATION("Centroid Var"),
+	/** Addition of the compressed magnitudes of all the bins */
+	ENERGY("Energy"),
+	/** Derivative of the energy over time, normalized to -1.0, 1.0 */
+	ENERGY_VARIATION("Energy Var"),
+	/** Zero crossings per sample, between 0.0 and 1.0 */
+	ZERO_CROSSING("Zero Cross"),
+	/** Derivative of the zero crossing over time, normalized to -1.0, 1.0 */
+	ZERO_CROSSING_VARIATION("Zero Cross Var"),
+	/** Root mean square of the samples, between 0.0 and 1.0 */
+	RMS("RMS"),
+	/** Max absolute value of the samples, between 0.0 and 1.0 */
+	PEAK("Peak"),
+	/** Mean of the samples, between -1.0 and 1.0 */
+	DC_OFFSET("DC");
+
+	/** Short name to show in the screen */
+	public final String label;
+
+	private Descriptor(String label){
+		this.label = label;
+	}
+}
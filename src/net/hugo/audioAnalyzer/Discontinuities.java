@@ -0,0 +1,169 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * @author hugosg
+ * 
+ * The places of a recording where audio is missing: the microphone gave an
+ * error instead of samples, or the capture was late and the AudioRecord lost
+ * the oldest samples of its buffer, or the PcmWriter was behind the SampleRing
+ * and lost samples the microphone did give. The recording itself just goes on
+ * with the next samples, so this is the only way to know there is a jump. They
+ * are found by the CaptureMonitor and the PcmWriter, and saved next to the
+ * recording in its samples, see PcmFiles.getDiscontinuities().
+ * 
+ * The file:
+ * 	MAGIC, VERSION, number of gaps, and for each one: sample, lost samples, kind
+ */
+public class Discontinuities {
+
+	private static final int MAGIC = 0x48474150; //"HGAP"
+	private static final int VERSION = 1;
+
+	/** The read gave an error code instead of samples */
+	public static final int ERROR = 0;
+	/** The capture was behind the clock by more than the buffer of the device */
+	public static final int OVERRUN = 1;
+	/** The file writer was behind the SampleRing by more than the ring */
+	public static final int RING = 2;
+
+	/**
+	 * One place where audio is missing
+	 */
+	public static class Gap {
+		/** Samples of the recording before the gap */
+		public final long sample;
+		/** Samples missing there, estimated with the clock for an OVERRUN, 0 if not known */
+		public final long lost;
+		/** ERROR, OVERRUN or RING */
+		public final int kind;
+
+		public Gap(long sample, long lost, int kind){
+			this.sample = sample;
+			this.lost = lost;
+			this.kind = kind;
+		}
+	}
+
+	private final ArrayList<Gap> gaps = new ArrayList<Gap>();
+
+	/**
+	 * @param sample samples of the recording before the gap
+	 * @param lost samples missing, 0 if not known
+	 * @param kind ERROR, OVERRUN or RING
+	 * 
+	 * The gaps are kept in the order of the recording, usually the new one is the last.
+	 * Two gaps at the same sample are one, the missing samples are added
+	 */
+	public synchronized void add(long sample, long lost, int kind){
+		int i = gaps.size();
+		while(i > 0 && gaps.get(i - 1).sample > sample) i--;
+		if(i > 0 && gaps.get(i - 1).sample == sample){
+			Gap previous = gaps.get(i - 1);
+			gaps.set(i - 1, new Gap(sample, previous.lost + lost, Math.max(previous.kind, kind)));
+		} else {
+			gaps.add(i, new Gap(sample, lost, kind));
+		}
+	}
+
+	public synchronized int size(){
+		return gaps.size();
+	}
+
+	public synchronized Gap get(int i){
+		return gaps.get(i);
+	}
+
+	/**
+	 * @return all the missing samples we know of
+	 */
+	public synchronized long getLost(){
+		long lost = 0;
+		for(int i = 0; i < gaps.size(); i++){
+			lost += gaps.get(i).lost;
+		}
+		return lost;
+	}
+
+	/**
+	 * Write the gaps to the file, or delete the file if there are none
+	 */
+	public synchronized void save(File file) throws IOException {
+		if(gaps.isEmpty()){
+			file.delete();
+			return;
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(gaps.size());
+			for(int i = 0; i < gaps.size(); i++){
+				Gap gap = gaps.get(i);
+				out.writeLong(gap.sample);
+				out.writeLong(gap.lost);
+				out.writeInt(gap.kind);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the gaps saved in the file, none if there is no file
+	 */
+	public static Discontinuities load(File file) throws IOException {
+		Discontinuities d = new Discontinuities();
+		if(!file.exists()) return d;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a gaps file: " + file);
+			int count = in.readInt();
+			for(int i = 0; i < count; i++){
+				long sample = in.readLong();
+				long lost = in.readLong();
+				d.add(sample, lost, in.readInt());
+			}
+		} finally {
+			in.close();
+		}
+		return d;
+	}
+}
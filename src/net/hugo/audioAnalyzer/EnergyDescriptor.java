@@ -0,0 +1,73 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Energy defined as the addition of the compressed magnitudes of all the bins.
+ * The Math.sqrt of the magnitudes is used as a way to compress the values into a smaller range
+ */
+public class EnergyDescriptor implements FrameDescriptor {
+
+	@Override
+	public Descriptor getDescriptor(){
+		return Descriptor.ENERGY;
+	}
+
+	@Override
+	public Descriptor getVariation(){
+		return Descriptor.ENERGY_VARIATION;
+	}
+
+	@Override
+	public boolean isSummarized(){
+		return true;
+	}
+
+	@Override
+	public int getNeeds(){
+		return COMPRESSED;
+	}
+
+	@Override
+	public int getSize(int bins){
+		return 1;
+	}
+
+	@Override
+	public void compute(FrameData frame, float[] out){
+		final double[] compressed = frame.compressed;
+		double energy = 0;
+		for(int i = 0; i < frame.bins; i++){
+			energy += compressed[i];
+		}
+		out[0] = (float)energy;
+	}
+}
@@ -23,15 +23,211 @@
  * 
  * Otherwise noticed, the code was created by Hugo Solis
  * hugosg@uw.edu, feel free to contact me if you have any questions.
- * 
- * THIS FILE WAS TAKEN FROM THE SOURCE CODE OF THE MEAPSOFT.
- * PLEASE READ THE NEXT SECTION
- * 
  * Dec 16, 2009
  * hugosg
  */
+package net.hugo.audioAnalyzer;
+
+import java.util.Hashtable;
+
+/**
+ * @author hugosg
+ *
+ * Radix-2 FFT written from scratch to replace the MeapSoft code (GPL) that
+ * used to live here. It keeps the API the Analyzer was written against:
+ * new FFT(size), getWindow() and fft(re, im).
+ *
+ * On top of that there is a real input path, realFFT(), that packs the
+ * N real samples of a frame into an N/2 complex transform and untangles the
+ * result, so there is no need to fill and transform a zeroed imaginary array.
+ *
+ * The twiddle, bit reversal and window tables only depend on the size so they
+ * are computed once per size and shared by all the FFT objects. The scratch
+ * arrays are not shared, so use one FFT object per thread.
+ */
+public class FFT {
+
+	/**
+	 * Tables already computed, by size. Hashtable because several threads can ask at the same time
+	 */
+	private static final Hashtable<Integer, Tables> cache = new Hashtable<Integer, Tables>();
+
+	private final int n;
+	private final Tables tables;
+
+	private FFT half; //complex FFT of n / 2 used by the real path, only created when needed
+	private double[] zr, zi; //scratch arrays of the real path
+
+	/**
+	 * @param n size of the transform, remember power of two!!!
+	 */
+	public FFT(int n){
+		if(n < 2 || (n & (n - 1)) != 0){
+			throw new IllegalArgumentException("FFT size must be a power of two, got " + n);
+		}
+		this.n = n;
+		this.tables = getTables(n);
+	}
+
+	public int getSize(){
+		return n;
+	}
+
+	/**
+	 * @return a Hann window of the size of the FFT.
+	 *
+	 * The array is shared by all the FFTs of the same size, do not modify it.
+	 */
+	public double[] getWindow(){
+		return tables.window;
+	}
+
+	/**
+	 * @param re real part, replaced by the real part of the transform
+	 * @param im imaginary part, replaced by the imaginary part of the transform
+	 *
+	 * In place forward complex transform of n points.
+	 */
+	public void fft(double[] re, double[] im){
+		final int[] rev = tables.rev;
+		final double[] cos = tables.cos;
+		final double[] sin = tables.sin;
+
+		//reorder the input in bit reversed order so the butterflies can work in place
+		for(int i = 0; i < n; i++){
+			int j = rev[i];
+			if(j > i){
+				double tmp = re[i]; re[i] = re[j]; re[j] = tmp;
+				tmp = im[i]; im[i] = im[j]; im[j] = tmp;
+			}
+		}
+
+		//butterflies, each pass doubles the size of the transforms already done
+		for(int size = 2; size <= n; size <<= 1){
+			int halfSize = size >> 1;
+			int step = n / size; //stride in the twiddle table for this pass
+			for(int k = 0; k < halfSize; k++){
+				double wr = cos[k * step];
+				double wi = -sin[k * step];
+				for(int a = k; a < n; a += size){
+					int b = a + halfSize;
+					double tr = wr * re[b] - wi * im[b];
+					double ti = wr * im[b] + wi * re[b];
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param x n real samples, not modified
+	 * @param re receives the real part of the bins 0 to n / 2 (so at least n / 2 + 1 values)
+	 * @param im receives the imaginary part of the bins 0 to n / 2
+	 *
+	 * Forward transform of a real signal. The even samples go to the real part and the odd ones
+	 * to the imaginary part of an n / 2 complex transform, the two halves are separated afterwards
+	 * using the symmetry of the transform of a real signal. The bins above n / 2 are not computed,
+	 * they are just the conjugate of the ones below.
+	 */
+	public void realFFT(double[] x, double[] re, double[] im){
+		int h = n >> 1;
+		if(h == 1){
+			re[0] = x[0] + x[1]; im[0] = 0;
+			re[1] = x[0] - x[1]; im[1] = 0;
+			return;
+		}
+		if(half == null){
+			half = new FFT(h);
+			zr = new double[h];
+			zi = new double[h];
+		}
+		final double[] zr = this.zr;
+		final double[] zi = this.zi;
+		for(int k = 0; k < h; k++){
+			zr[k] = x[2 * k];
+			zi[k] = x[2 * k + 1];
+		}
+		half.fft(zr, zi);
+
+		//DC and Nyquist only depend on the first bin
+		re[0] = zr[0] + zi[0]; im[0] = 0;
+		re[h] = zr[0] - zi[0]; im[h] = 0;
+
+		final double[] cos = tables.cos;
+		final double[] sin = tables.sin;
+		for(int k = 1; k < h; k++){
+			double ar = zr[k], ai = zi[k];
+			double br = zr[h - k], bi = -zi[h - k]; //conjugate of the mirrored bin
+			//transform of the even samples
+			double er = (ar + br) * 0.5;
+			double ei = (ai + bi) * 0.5;
+			//transform of the odd samples
+			double or = (ai - bi) * 0.5;
+			double oi = (br - ar) * 0.5;
+			//recombine with the twiddle of the full size
+			double wr = cos[k];
+			double wi = -sin[k];
+			re[k] = er + wr * or - wi * oi;
+			im[k] = ei + wr * oi + wi * or;
+		}
+	}
+
+	/**
+	 * @param re real part of the bins
+	 * @param im imaginary part of the bins
+	 * @param mag receives the magnitude of each bin
+	 * @param bins how many bins to convert
+	 */
+	public static void magnitude(double[] re, double[] im, double[] mag, int bins){
+		for(int i = 0; i < bins; i++){
+			mag[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+		}
+	}
+
+	private static Tables getTables(int n){
+		Integer key = Integer.valueOf(n);
+		Tables t = cache.get(key);
+		if(t == null){
+			//two threads may compute the same tables, no harm done, both are equal
+			t = new Tables(n);
+			cache.put(key, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Everything that only depends on the size of the transform
+	 */
+	private static class Tables {
 
+		final double[] cos; //cos(2 * PI * k / n) for k < n / 2
+		final double[] sin; //sin(2 * PI * k / n) for k < n / 2
+		final int[] rev; //bit reversed index of each position
+		final double[] window; //Hann window
 
-// WE CAN'T HAVE GPL CODE IN THE REPO. PLEASE PULL THE CODE FROM http://www.meapsoft.org/download.php
+		Tables(int n){
+			int h = n >> 1;
+			cos = new double[h];
+			sin = new double[h];
+			for(int k = 0; k < h; k++){
+				double angle = 2 * Math.PI * k / n;
+				cos[k] = Math.cos(angle);
+				sin[k] = Math.sin(angle);
+			}
 
+			int bits = Integer.numberOfTrailingZeros(n);
+			rev = new int[n];
+			for(int i = 0; i < n; i++){
+				rev[i] = Integer.reverse(i) >>> (32 - bits);
+			}
 
+			window = new double[n];
+			for(int i = 0; i < n; i++){
+				window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / n);
+			}
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.Hashtable;
+
+/**
+ * @author hugosg
+ * 
+ * The FFT in fixed point, for Precision.FIXED: the samples stay 16 bit
+ * integers (Q15, 1.0 is 32768), the window and the twiddles are Q15 integers
+ * and the butterflies work in 32 bit ints. No floating point at all until the
+ * magnitudes, for the devices without a floating point unit.
+ * 
+ * Block floating point: a quiet frame is shifted up to use all the 16 bits,
+ * and a pass of butterflies is divided by two only when its input is big
+ * enough to grow out of them. The shifts are counted and returned as the
+ * exponent of the transform. That is the price: each halving rounds away one
+ * bit, so the quiet bins of a loud frame lose precision. See Precision for the
+ * bounds.
+ * 
+ * Tables shared by size, scratch arrays per object, so one object per thread.
+ */
+public class FixedFFT {
+
+	/** 1.0 in Q15 */
+	public static final int ONE = 1 << 15;
+	private static final int HEADROOM = 1 << 14; //values from here could double out of 16 bits
+	private static final int HALF = 1 << 14; //0.5 in Q15, for rounding a product back to Q15
+
+	private static final Hashtable<Integer, Tables> cache = new Hashtable<Integer, Tables>();
+
+	private final int n;
+	private final Tables tables;
+
+	private FixedFFT half; //complex FFT of n / 2 used by the real path, only created when needed
+	private int[] zr, zi; //scratch arrays of the real path
+
+	/**
+	 * @param n size of the transform, remember power of two!!!
+	 */
+	public FixedFFT(int n){
+		if(n < 2 || (n & (n - 1)) != 0){
+			throw new IllegalArgumentException("FFT size must be a power of two, got " + n);
+		}
+		this.n = n;
+		this.tables = getTables(n);
+	}
+
+	public int getSize(){
+		return n;
+	}
+
+	/**
+	 * @param type the window
+	 * @return the window in Q15, 1.0 is stored as 32767. Shared by all the FixedFFTs of the same size,
+	 * do not modify it
+	 */
+	public int[] getWindow(WindowType type){
+		int[] w = tables.windows[type.ordinal()];
+		if(w == null){
+			w = toQ15(type.create(n));
+			tables.windows[type.ordinal()] = w; //two threads may do it, both are equal
+		}
+		return w;
+	}
+
+	/**
+	 * @param re real part in Q15, replaced by the real part of the transform divided by 2^shifts
+	 * @param im imaginary part in Q15, replaced by the imaginary part of the transform divided by 2^shifts
+	 * @return shifts, how many passes were divided by two
+	 * 
+	 * In place forward complex transform of n points, see FFT.fft(). The values must be in 16 bits
+	 */
+	public int fft(int[] re, int[] im){
+		final int[] rev = tables.rev;
+		final int[] cos = tables.cos;
+		final int[] sin = tables.sin;
+
+		for(int i = 0; i < n; i++){
+			int j = rev[i];
+			if(j > i){
+				int tmp = re[i]; re[i] = re[j]; re[j] = tmp;
+				tmp = im[i]; im[i] = im[j]; im[j] = tmp;
+			}
+		}
+
+		int bits = 0; //all the absolute values ORed, enough to know how big they are
+		for(int i = 0; i < n; i++){
+			bits |= (re[i] ^ (re[i] >> 31)) | (im[i] ^ (im[i] >> 31));
+		}
+		int shifts = 0;
+		for(int size = 2; size <= n; size <<= 1){
+			int halfSize = size >> 1;
+			int step = n / size;
+			//a butterfly can double a value, halve the pass if the values are over 14 bits
+			boolean halve = bits >= HEADROOM;
+			int round = halve ? 1 : 0;
+			int shift = halve ? 1 : 0;
+			if(halve) shifts++;
+			bits = 0;
+			for(int k = 0; k < halfSize; k++){
+				int wr = cos[k * step];
+				int wi = -sin[k * step];
+				for(int a = k; a < n; a += size){
+					int b = a + halfSize;
+					//each product fits in 31 bits, they are rounded back to Q15 before adding them,
+					//only shifting would take half a bit off each one and raise the noise floor
+					int tr = ((wr * re[b] + HALF) >> 15) - ((wi * im[b] + HALF) >> 15);
+					int ti = ((wr * im[b] + HALF) >> 15) + ((wi * re[b] + HALF) >> 15);
+					int ar = re[a], ai = im[a];
+					int br2 = (ar - tr + round) >> shift;
+					int bi2 = (ai - ti + round) >> shift;
+					int ar2 = (ar + tr + round) >> shift;
+					int ai2 = (ai + ti + round) >> shift;
+					re[b] = br2;
+					im[b] = bi2;
+					re[a] = ar2;
+					im[a] = ai2;
+					bits |= (br2 ^ (br2 >> 31)) | (bi2 ^ (bi2 >> 31)) | (ar2 ^ (ar2 >> 31)) | (ai2 ^ (ai2 >> 31));
+				}
+			}
+		}
+		return shifts;
+	}
+
+	/**
+	 * @param x n real samples in Q15, not modified
+	 * @param re receives the real part of the bins 0 to n / 2, times 2^-exponent
+	 * @param im receives the imaginary part of the bins 0 to n / 2, times 2^-exponent
+	 * @return exponent, the transform is re * 2^exponent, im * 2^exponent
+	 * 
+	 * Forward transform of a real signal, see FFT.realFFT()
+	 */
+	public int realFFT(int[] x, int[] re, int[] im){
+		int h = n >> 1;
+		if(h == 1){
+			re[0] = (x[0] + x[1] + 1) >> 1; im[0] = 0;
+			re[1] = (x[0] - x[1] + 1) >> 1; im[1] = 0;
+			return 1;
+		}
+		if(half == null){
+			half = new FixedFFT(h);
+			zr = new int[h];
+			zi = new int[h];
+		}
+		final int[] zr = this.zr;
+		final int[] zi = this.zi;
+		//a quiet frame goes up to 14 bits, so the butterflies have all the bits
+		int bits = 0;
+		for(int i = 0; i < n; i++){
+			bits |= x[i] ^ (x[i] >> 31);
+		}
+		int up = 0;
+		while(bits != 0 && (bits << (up + 1)) < HEADROOM) up++;
+		for(int k = 0; k < h; k++){
+			zr[k] = x[2 * k] << up;
+			zi[k] = x[2 * k + 1] << up;
+		}
+		int exponent = half.fft(zr, zi) + 1 - up; //the recombination below halves too
+
+		re[0] = (zr[0] + zi[0] + 1) >> 1; im[0] = 0;
+		re[h] = (zr[0] - zi[0] + 1) >> 1; im[h] = 0;
+
+		final int[] cos = tables.cos;
+		final int[] sin = tables.sin;
+		for(int k = 1; k < h; k++){
+			int ar = zr[k], ai = zi[k];
+			int br = zr[h - k], bi = -zi[h - k];
+			//the halves of the even and odd transforms are kept at twice their value, halved at the end
+			int er = ar + br;
+			int ei = ai + bi;
+			int or = ai - bi;
+			int oi = br - ar;
+			int wr = cos[k];
+			int wi = -sin[k];
+			//twice the value can take 17 bits, these products go in a long
+			re[k] = (int)((((long)er << 15) + (long)wr * or - (long)wi * oi + (1L << 16)) >> 17);
+			im[k] = (int)((((long)ei << 15) + (long)wr * oi + (long)wi * or + (1L << 16)) >> 17);
+		}
+		return exponent;
+	}
+
+	/**
+	 * @return the values in Q15, clamped to 16 bits
+	 */
+	static int[] toQ15(double[] values){
+		int[] q = new int[values.length];
+		for(int i = 0; i < values.length; i++){
+			long v = Math.round(values[i] * ONE);
+			q[i] = (int)Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, v));
+		}
+		return q;
+	}
+
+	private static Tables getTables(int n){
+		Integer key = Integer.valueOf(n);
+		Tables t = cache.get(key);
+		if(t == null){
+			t = new Tables(n);
+			cache.put(key, t);
+		}
+		return t;
+	}
+
+	private static class Tables {
+
+		final int[] cos;
+		final int[] sin;
+		final int[] rev;
+		final int[][] windows = new int[WindowType.values().length][]; //made when asked
+
+		Tables(int n){
+			int h = n >> 1;
+			double[] c = new double[h];
+			double[] s = new double[h];
+			for(int k = 0; k < h; k++){
+				double angle = 2 * Math.PI * k / n;
+				c[k] = Math.cos(angle);
+				s[k] = Math.sin(angle);
+			}
+			cos = toQ15(c);
+			sin = toQ15(s);
+			int bits = Integer.numberOfTrailingZeros(n);
+			rev = new int[n];
+			for(int i = 0; i < n; i++){
+				rev[i] = Integer.reverse(i) >>> (32 - bits);
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.Hashtable;
+
+/**
+ * @author hugosg
+ * 
+ * The FFT in single precision, for Precision.FLOAT: the same radix-2 transform
+ * and real input path as FFT, with float arrays and float tables. Half the
+ * memory traffic and, on the devices without a good double unit, less time.
+ * 
+ * The window table already has the 1 / (Short.MAX_VALUE + 1) of the samples in
+ * it, so normalizing and windowing a sample is a single multiply.
+ * 
+ * Tables shared by size, scratch arrays per object, so one object per thread.
+ */
+public class FloatFFT {
+
+	private static final Hashtable<Integer, Tables> cache = new Hashtable<Integer, Tables>();
+
+	private final int n;
+	private final Tables tables;
+
+	private FloatFFT half; //complex FFT of n / 2 used by the real path, only created when needed
+	private float[] zr, zi; //scratch arrays of the real path
+
+	/**
+	 * @param n size of the transform, remember power of two!!!
+	 */
+	public FloatFFT(int n){
+		if(n < 2 || (n & (n - 1)) != 0){
+			throw new IllegalArgumentException("FFT size must be a power of two, got " + n);
+		}
+		this.n = n;
+		this.tables = getTables(n);
+	}
+
+	public int getSize(){
+		return n;
+	}
+
+	/**
+	 * @param type the window
+	 * @return the window multiplied by FrameData.SCALE, so samples * window is normalized and windowed.
+	 * Shared by all the FloatFFTs of the same size, do not modify it
+	 */
+	public float[] getScaledWindow(WindowType type){
+		float[] w = tables.windows[type.ordinal()];
+		if(w == null){
+			double[] window = type.create(n);
+			w = new float[n];
+			for(int i = 0; i < n; i++){
+				w[i] = (float)(window[i] * FrameData.SCALE);
+			}
+			tables.windows[type.ordinal()] = w; //two threads may do it, both are equal
+		}
+		return w;
+	}
+
+	/**
+	 * @param re real part, replaced by the real part of the transform
+	 * @param im imaginary part, replaced by the imaginary part of the transform
+	 * 
+	 * In place forward complex transform of n points, see FFT.fft()
+	 */
+	public void fft(float[] re, float[] im){
+		final int[] rev = tables.rev;
+		final float[] cos = tables.cos;
+		final float[] sin = tables.sin;
+
+		for(int i = 0; i < n; i++){
+			int j = rev[i];
+			if(j > i){
+				float tmp = re[i]; re[i] = re[j]; re[j] = tmp;
+				tmp = im[i]; im[i] = im[j]; im[j] = tmp;
+			}
+		}
+
+		for(int size = 2; size <= n; size <<= 1){
+			int halfSize = size >> 1;
+			int step = n / size;
+			for(int k = 0; k < halfSize; k++){
+				float wr = cos[k * step];
+				float wi = -sin[k * step];
+				for(int a = k; a < n; a += size){
+					int b = a + halfSize;
+					float tr = wr * re[b] - wi * im[b];
+					float ti = wr * im[b] + wi * re[b];
+					re[b] = re[a] - tr;
+					im[b] = im[a] - ti;
+					re[a] += tr;
+					im[a] += ti;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param x n real samples, not modified
+	 * @param re receives the real part of the bins 0 to n / 2
+	 * @param im receives the imaginary part of the bins 0 to n / 2
+	 * 
+	 * Forward transform of a real signal, see FFT.realFFT()
+	 */
+	public void realFFT(float[] x, float[] re, float[] im){
+		int h = n >> 1;
+		if(h == 1){
+			re[0] = x[0] + x[1]; im[0] = 0;
+			re[1] = x[0] - x[1]; im[1] = 0;
+			return;
+		}
+		if(half == null){
+			half = new FloatFFT(h);
+			zr = new float[h];
+			zi = new float[h];
+		}
+		final float[] zr = this.zr;
+		final float[] zi = this.zi;
+		for(int k = 0; k < h; k++){
+			zr[k] = x[2 * k];
+			zi[k] = x[2 * k + 1];
+		}
+		half.fft(zr, zi);
+
+		re[0] = zr[0] + zi[0]; im[0] = 0;
+		re[h] = zr[0] - zi[0]; im[h] = 0;
+
+		final float[] cos = tables.cos;
+		final float[] sin = tables.sin;
+		for(int k = 1; k < h; k++){
+			float ar = zr[k], ai = zi[k];
+			float br = zr[h - k], bi = -zi[h - k];
+			float er = (ar + br) * 0.5f;
+			float ei = (ai + bi) * 0.5f;
+			float or = (ai - bi) * 0.5f;
+			float oi = (br - ar) * 0.5f;
+			float wr = cos[k];
+			float wi = -sin[k];
+			re[k] = er + wr * or - wi * oi;
+			im[k] = ei + wr * oi + wi * or;
+		}
+	}
+
+	private static Tables getTables(int n){
+		Integer key = Integer.valueOf(n);
+		Tables t = cache.get(key);
+		if(t == null){
+			t = new Tables(n);
+			cache.put(key, t);
+		}
+		return t;
+	}
+
+	private static class Tables {
+
+		final float[] cos;
+		final float[] sin;
+		final int[] rev;
+		final float[][] windows = new float[WindowType.values().length][]; //scaled windows, made when asked
+
+		Tables(int n){
+			//the angles in double, only the result is rounded to float
+			int h = n >> 1;
+			cos = new float[h];
+			sin = new float[h];
+			for(int k = 0; k < h; k++){
+				double angle = 2 * Math.PI * k / n;
+				cos[k] = (float)Math.cos(angle);
+				sin[k] = (float)Math.sin(angle);
+			}
+			int bits = Integer.numberOfTrailingZeros(n);
+			rev = new int[n];
+			for(int i = 0; i < n; i++){
+				rev[i] = Integer.reverse(i) >>> (32 - bits);
+			}
+		}
+	}
+}
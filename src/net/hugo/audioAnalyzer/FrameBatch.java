@@ -0,0 +1,77 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * A group of FrameRecords delivered to the UI thread in a single
+ * publishProgress. Sending the records one by one means one Handler
+ * message per frame and per descriptor, and the UI thread can not keep up.
+ * 
+ * The array grows when needed and is kept, so a batch can be used again
+ * after clear().
+ */
+public class FrameBatch {
+
+	private FrameRecord[] records;
+	private int size = 0;
+
+	public FrameBatch(int capacity){
+		records = new FrameRecord[Math.max(capacity, 1)];
+	}
+
+	public void add(FrameRecord record){
+		if(size == records.length){
+			FrameRecord[] bigger = new FrameRecord[records.length * 2];
+			Metrics.allocated(bigger.length * 4);
+			System.arraycopy(records, 0, bigger, 0, size);
+			records = bigger;
+		}
+		records[size++] = record;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public FrameRecord get(int i){
+		return records[i];
+	}
+
+	/**
+	 * Forget the records, they are not recycled here
+	 */
+	public void clear(){
+		for(int i = 0; i < size; i++){
+			records[i] = null;
+		}
+		size = 0;
+	}
+}
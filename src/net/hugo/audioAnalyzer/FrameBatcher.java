@@ -0,0 +1,141 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Groups FrameRecords in FrameBatches before they go to the UI thread.
+ * A batch is delivered once it is big or old enough, but never more often than
+ * the max update rate. While the UI is limited the batch keeps growing, so the
+ * producer never waits for the screen.
+ * 
+ * How the batch gets to the UI thread is up to the Target: the Analyzer uses
+ * publishProgress, the live analysis of the Recorder a Handler. Once the UI is
+ * done with a batch it gives it back with recycle(), records included.
+ */
+public class FrameBatcher {
+
+	/**
+	 * Whoever takes the batches to the UI thread
+	 */
+	public interface Target {
+		void deliver(FrameBatch batch);
+	}
+
+	private final Target target;
+	private int batchFrames = 512;
+	private long batchDelay = 100;
+	private long minUpdateInterval = 1000 / 30;
+
+	private FrameBatch batch; //batch being filled, null if nothing is waiting
+	private long batchStart;
+	private long lastDelivery;
+	private final FrameBatch[] freeBatches = new FrameBatch[4]; //batches already delivered, ready to be used again
+	private int freeBatchCount = 0;
+
+	public FrameBatcher(Target target){
+		this.target = target;
+	}
+
+	/**
+	 * @param maxFrames a batch is sent once it has this many records...
+	 * @param maxDelayMillis ...or once its first record has waited this long
+	 * @param maxUpdatesPerSecond but never more than this batches per second, 0 for no limit
+	 * 
+	 * setBatching(1, 0, 0) sends every record on its own.
+	 */
+	public void setBatching(int maxFrames, long maxDelayMillis, int maxUpdatesPerSecond){
+		this.batchFrames = Math.max(maxFrames, 1);
+		this.batchDelay = Math.max(maxDelayMillis, 0);
+		this.minUpdateInterval = maxUpdatesPerSecond > 0 ? 1000 / maxUpdatesPerSecond : 0;
+	}
+
+	/**
+	 * Add the record to the current batch, and send the batch if it is big or old enough
+	 * and the UI was not updated too recently
+	 */
+	public void publish(FrameRecord record){
+		long now = now();
+		if(batch == null){
+			batch = obtainBatch();
+			batchStart = now;
+		}
+		batch.add(record);
+		if((batch.size() >= batchFrames || now - batchStart >= batchDelay) && now - lastDelivery >= minUpdateInterval){
+			deliver(now);
+		}
+	}
+
+	/**
+	 * Send whatever is waiting, no matter the size or the time
+	 */
+	public void flush(){
+		deliver(now());
+	}
+
+	/**
+	 * @param delivered a batch given to the Target
+	 * 
+	 * Recycle the records of the batch and keep the batch for later. Called from the UI thread
+	 */
+	public void recycle(FrameBatch delivered){
+		for(int i = 0; i < delivered.size(); i++){
+			delivered.get(i).recycle();
+		}
+		delivered.clear();
+		synchronized(freeBatches){
+			if(freeBatchCount < freeBatches.length) freeBatches[freeBatchCount++] = delivered;
+		}
+	}
+
+	private void deliver(long now){
+		if(batch != null){
+			target.deliver(batch);
+			batch = null;
+			lastDelivery = now;
+		}
+	}
+
+	private FrameBatch obtainBatch(){
+		synchronized(freeBatches){
+			if(freeBatchCount > 0){
+				FrameBatch b = freeBatches[--freeBatchCount];
+				freeBatches[freeBatchCount] = null;
+				return b;
+			}
+		}
+		Metrics.allocated(batchFrames * 4);
+		return new FrameBatch(batchFrames);
+	}
+
+	private static long now(){
+		return System.nanoTime() / 1000000;
+	}
+}
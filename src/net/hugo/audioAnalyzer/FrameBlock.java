@@ -0,0 +1,91 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * A run of consecutive frames analyzed together. The samples of all the
+ * frames are in one array (frame i starts at i * hop) and the values of each
+ * descriptor of the pipeline are kept one frame after the other.
+ * 
+ * Blocks are what we give to the worker threads, each block is computed by a
+ * single thread with its own FrameKernel and then merged in order.
+ */
+public class FrameBlock {
+
+	/** Samples of the frames of the block */
+	public final short[] samples;
+	/** Values of each descriptor, frame i starts at i * sizes[d] */
+	public final float[][] values;
+	/** Number of values per frame of each descriptor */
+	public final int[] sizes;
+	/** Max number of frames of the block */
+	public final int capacity;
+	private final int hop;
+
+	/** Index of the first frame of the block in the recording */
+	public int first;
+	/** Number of frames in the block */
+	public int count;
+
+	/**
+	 * @param capacity max number of frames
+	 * @param size samples per frame
+	 * @param hop samples between the start of two frames
+	 * @param sizes values per frame of each descriptor
+	 */
+	public FrameBlock(int capacity, int size, int hop, int[] sizes){
+		this.capacity = capacity;
+		this.hop = hop;
+		this.sizes = sizes;
+		this.samples = new short[(capacity - 1) * hop + size];
+		this.values = new float[sizes.length][];
+		for(int d = 0; d < sizes.length; d++){
+			values[d] = new float[capacity * sizes[d]];
+		}
+	}
+
+	/**
+	 * @param kernel the kernel of the calling thread
+	 * @param out one array per descriptor, scratch for the kernel
+	 * 
+	 * Compute all the descriptors of the count frames of the block
+	 */
+	public void compute(FrameKernel kernel, float[][] out){
+		kernel.prepare(samples, count, hop);
+		for(int i = 0; i < count; i++){
+			kernel.process(samples, i * hop, out);
+			for(int d = 0; d < sizes.length; d++){
+				System.arraycopy(out[d], 0, values[d], i * sizes[d], sizes[d]);
+			}
+		}
+		kernel.flushMetrics();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * @author hugosg
+ * 
+ * Computes FrameBlocks on a pool of worker threads. Every worker owns its
+ * FrameKernel, so the FFT scratch arrays are never shared. The FFT tables and
+ * the descriptors of the pipeline are shared, that is why a FrameDescriptor
+ * must not keep state between calls.
+ * 
+ * With one thread the blocks are computed right away in the calling thread,
+ * without any pool.
+ */
+public class FrameBlockProcessor {
+
+	private final ExecutorService executor;
+	private final ThreadLocal<FrameKernel> kernels;
+	private final ThreadLocal<float[][]> outs;
+
+	/**
+	 * @param threads number of worker threads, 1 for computing in the calling thread
+	 * @param size samples per frame
+	 * @param window window applied before the FFT
+	 * @param pipeline descriptors to compute
+	 */
+	public FrameBlockProcessor(int threads, int size, WindowType window, FramePipeline pipeline){
+		this(threads, size, window, Precision.DOUBLE, pipeline);
+	}
+
+	/**
+	 * @param threads number of worker threads, 1 for computing in the calling thread
+	 * @param size samples per frame
+	 * @param window window applied before the FFT
+	 * @param precision of the windowing and the FFT of the kernels
+	 * @param pipeline descriptors to compute
+	 */
+	public FrameBlockProcessor(int threads, final int size, final WindowType window, final Precision precision,
+			final FramePipeline pipeline){
+		this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		this.kernels = new ThreadLocal<FrameKernel>(){
+			@Override
+			protected FrameKernel initialValue(){
+				return new FrameKernel(size, window, precision, pipeline);
+			}
+		};
+		this.outs = new ThreadLocal<float[][]>(){
+			@Override
+			protected float[][] initialValue(){
+				int bins = size / 2;
+				float[][] out = new float[pipeline.size()][];
+				for(int d = 0; d < out.length; d++){
+					out[d] = new float[pipeline.get(d).getSize(bins)];
+				}
+				return out;
+			}
+		};
+	}
+
+	/**
+	 * @return the block once it is computed. Get the futures in the same order they were
+	 * submitted and the merge is the same as if everything was done in a single thread
+	 */
+	public Future<FrameBlock> submit(final FrameBlock block){
+		Callable<FrameBlock> task = new Callable<FrameBlock>(){
+			@Override
+			public FrameBlock call(){
+				block.compute(kernels.get(), outs.get());
+				return block;
+			}
+		};
+		if(executor != null){
+			return executor.submit(task);
+		}
+		FutureTask<FrameBlock> done = new FutureTask<FrameBlock>(task);
+		done.run();
+		return done;
+	}
+
+	/**
+	 * Stop the worker threads, the blocks already submitted are finished
+	 */
+	public void shutdown(){
+		if(executor != null) executor.shutdown();
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * The intermediate values of one frame, shared by all the FrameDescriptors of
+ * a pipeline. Filled by the FrameKernel, only what the descriptors asked for
+ * is computed. The descriptors must not modify the arrays.
+ */
+public class FrameData {
+
+	/** Short.MAX_VALUE + 1 as a way to get the max positive value possible in a Short */
+	public static final double SCALE = 1.0 / (Short.MAX_VALUE + 1);
+
+	/** The samples, the frame starts at offset */
+	public short[] samples;
+	public int offset;
+	/** Number of samples of the frame */
+	public int size;
+
+	/** size samples normalized to -1, 1 and multiplied by the window */
+	public double[] windowed;
+
+	/** Number of bins of the spectrum, size / 2 */
+	public int bins;
+	/** Magnitude of each bin */
+	public double[] magnitude;
+	/** Square root of the magnitude of each bin */
+	public double[] compressed;
+
+	/** Zero crossings of the samples, as if the sample before the frame was 0 */
+	public int zeroCrossings;
+	/** Sum of the samples */
+	public long sum;
+	/** Sum of the squares of the samples */
+	public long sumSquares;
+	/** Max absolute value of the samples */
+	public int peak;
+}
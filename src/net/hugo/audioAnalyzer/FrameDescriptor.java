@@ -0,0 +1,91 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * A descriptor that can be plugged into a FramePipeline. It says which
+ * intermediate values of the frame it needs, and the FrameKernel computes each
+ * of them only once per frame no matter how many descriptors use it. So adding
+ * a descriptor does not add another FFT or another pass over the file.
+ * 
+ * For a new descriptor add its value to the Descriptor enum, implement this
+ * interface and add it to the pipeline. The AnalyzerView draws any descriptor
+ * it does not know as a grayscale bar.
+ * 
+ * The same descriptor object is called from several worker threads at the same
+ * time, so compute() must not keep any state in the object.
+ */
+public interface FrameDescriptor {
+
+	/** The raw samples of the frame */
+	int SAMPLES = 1;
+	/** The samples normalized to -1, 1 and multiplied by the window */
+	int WINDOWED = 2;
+	/** The magnitude of each bin of the FFT (implies WINDOWED) */
+	int MAGNITUDE = 4;
+	/** The square root of the magnitudes, the spectrum as we plot it (implies MAGNITUDE) */
+	int COMPRESSED = 8;
+	/** Zero crossings, sum, sum of squares and peak of the samples, see HopSums */
+	int SUMS = 16;
+
+	/**
+	 * @return the track the values of this descriptor go to
+	 */
+	Descriptor getDescriptor();
+
+	/**
+	 * @return the track for the variation (derivative over time) of this descriptor,
+	 * or null if there is no variation. Only for descriptors of a single value
+	 */
+	Descriptor getVariation();
+
+	/**
+	 * @return true if the average of the descriptor goes into the HEAD. Only for descriptors of a single value
+	 */
+	boolean isSummarized();
+
+	/**
+	 * @return a combination of SAMPLES, WINDOWED, MAGNITUDE, COMPRESSED and SUMS
+	 */
+	int getNeeds();
+
+	/**
+	 * @param bins number of bins of the FFT
+	 * @return number of values per frame
+	 */
+	int getSize(int bins);
+
+	/**
+	 * @param frame the intermediate values of the frame, only the ones asked in getNeeds() are valid
+	 * @param out receives the getSize() values of the descriptor
+	 */
+	void compute(FrameData frame, float[] out);
+}
@@ -0,0 +1,341 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Computes all the descriptors of a FramePipeline for one frame while the
+ * frame is still hot in the cache. The intermediate values (windowed samples,
+ * FFT, magnitudes) are computed once, only if some descriptor needs them, and
+ * shared by all the descriptors through a FrameData.
+ * 
+ * The kernel keeps its own FFT and scratch arrays, one kernel per thread.
+ * Windowing and FFT go in double, float or fixed point, see Precision, the
+ * descriptors always get the magnitudes in double.
+ * 
+ * The time domain sums (SUMS) of a run of frames are done together by the
+ * HopSums with prepare(), once per hop and not once per frame. A frame that
+ * was not prepared is summed on its own, same values.
+ * The time of each stage of one frame out of TIMING is added up here and goes
+ * to the Metrics with flushMetrics(), so the clock is not read four times for
+ * every frame and the shared timers are not touched for every frame.
+ */
+public class FrameKernel {
+
+	private final int size;
+	private final FramePipeline pipeline;
+	private final int needs;
+	private final Precision precision;
+	private final boolean windowedNeeded; //a descriptor uses the windowed samples, not only the FFT
+	private final FrameData data = new FrameData();
+	private final HopSums sums = new HopSums();
+	private short[] prepared; //samples of the frames of the sums, null if none
+	private int preparedCount, preparedHop;
+
+	//Precision.DOUBLE
+	private FFT fft;
+	private double[] window;
+	private double[] re, im;
+	//Precision.FLOAT
+	private FloatFFT floatFft;
+	private float[] floatWindow, floatWindowed, floatRe, floatIm;
+	//Precision.FIXED
+	private FixedFFT fixedFft;
+	private int[] fixedWindow, fixedWindowed, fixedRe, fixedIm;
+	private int fixedShift; //fixedWindowed is Q30 shifted down by this
+	private static final int TIMING = 8; //one frame timed out of this many, power of two
+	private long windowNanos, fftNanos, descriptorNanos; //since the last flushMetrics()
+	private int timedFrames;
+	private int processed;
+
+	/**
+	 * @param size samples of each frame, remember power of two!!!
+	 * @param pipeline the descriptors to compute
+	 * 
+	 * With the Hann window, as always
+	 */
+	public FrameKernel(int size, FramePipeline pipeline){
+		this(size, WindowType.HANN, pipeline);
+	}
+
+	/**
+	 * @param size samples of each frame, remember power of two!!!
+	 * @param windowType window applied before the FFT
+	 * @param pipeline the descriptors to compute
+	 */
+	public FrameKernel(int size, WindowType windowType, FramePipeline pipeline){
+		this(size, windowType, Precision.DOUBLE, pipeline);
+	}
+
+	/**
+	 * @param size samples of each frame, remember power of two!!!
+	 * @param windowType window applied before the FFT
+	 * @param precision of the windowing and the FFT
+	 * @param pipeline the descriptors to compute
+	 */
+	public FrameKernel(int size, WindowType windowType, Precision precision, FramePipeline pipeline){
+		this.size = size;
+		this.pipeline = pipeline;
+		this.needs = pipeline.getNeeds();
+		this.precision = precision;
+		boolean windowed = false;
+		for(int d = 0; d < pipeline.size(); d++){
+			if((pipeline.get(d).getNeeds() & FrameDescriptor.WINDOWED) != 0) windowed = true;
+		}
+		this.windowedNeeded = windowed;
+		int half = size / 2 + 1;
+		switch(precision){
+		case FLOAT:
+			floatFft = new FloatFFT(size);
+			floatWindow = floatFft.getScaledWindow(windowType);
+			floatWindowed = new float[size];
+			floatRe = new float[half];
+			floatIm = new float[half];
+			break;
+		case FIXED:
+			fixedFft = new FixedFFT(size);
+			fixedWindow = fixedFft.getWindow(windowType);
+			fixedWindowed = new int[size];
+			fixedRe = new int[half];
+			fixedIm = new int[half];
+			break;
+		default:
+			fft = new FFT(size);
+			//the Hann window of the FFT is shared, the others are only used by this kernel
+			window = windowType == WindowType.HANN ? fft.getWindow() : windowType.create(size);
+			re = new double[half];
+			im = new double[half];
+			break;
+		}
+		data.size = size;
+		data.bins = size / 2;
+		data.windowed = new double[size];
+		data.magnitude = new double[size / 2 + 1];
+		data.compressed = new double[size / 2 + 1];
+	}
+
+	/**
+	 * @return number of bins of the spectrum
+	 */
+	public int getBins(){
+		return size / 2;
+	}
+
+	public FramePipeline getPipeline(){
+		return pipeline;
+	}
+
+	public Precision getPrecision(){
+		return precision;
+	}
+
+	/**
+	 * @param samples the samples of the frames, frame i starts at i * hop
+	 * @param count number of frames
+	 * @param hop samples between the start of two frames
+	 * 
+	 * Do the time domain sums of the count frames at once, before calling process() for them.
+	 * Nothing to do if no descriptor needs SUMS
+	 */
+	public void prepare(short[] samples, int count, int hop){
+		if((needs & FrameDescriptor.SUMS) == 0) return;
+		sums.compute(samples, 0, count, size, hop);
+		prepared = samples;
+		preparedCount = count;
+		preparedHop = hop;
+	}
+
+	/**
+	 * @param music the samples
+	 * @param offset where the frame starts in music
+	 * @param out one array per descriptor of the pipeline, in the same order,
+	 * that receives its values
+	 */
+	public void process(short[] music, int offset, float[][] out){
+		final FrameData data = this.data;
+		data.samples = music;
+		data.offset = offset;
+		final boolean timed = (processed++ & (TIMING - 1)) == 0 && Metrics.isEnabled();
+		long t0 = timed ? System.nanoTime() : 0;
+
+		if((needs & FrameDescriptor.SUMS) != 0){
+			int frame = music == prepared && offset % preparedHop == 0 ? offset / preparedHop : -1;
+			if(frame < 0 || frame >= preparedCount){
+				sums.compute(music, offset, 1, size, size); //not prepared, this frame alone
+				prepared = null;
+				frame = 0;
+			}
+			data.zeroCrossings = sums.zeroCrossings[frame];
+			data.sum = sums.sums[frame];
+			data.sumSquares = sums.squares[frame];
+			data.peak = sums.peaks[frame];
+		}
+
+		long t1, t2;
+		switch(precision){
+		case FLOAT:
+			if((needs & FrameDescriptor.WINDOWED) != 0) windowFloat(music, offset);
+			t1 = timed ? System.nanoTime() : 0;
+			if((needs & FrameDescriptor.MAGNITUDE) != 0) transformFloat();
+			break;
+		case FIXED:
+			if((needs & FrameDescriptor.WINDOWED) != 0) windowFixed(music, offset);
+			t1 = timed ? System.nanoTime() : 0;
+			if((needs & FrameDescriptor.MAGNITUDE) != 0) transformFixed();
+			break;
+		default:
+			if((needs & FrameDescriptor.WINDOWED) != 0){
+				//normalize to -1 to 1 and multiply by the window
+				final double[] windowed = data.windowed;
+				final double[] window = this.window;
+				for(int i = 0; i < size; i++){
+					windowed[i] = music[offset + i] * FrameData.SCALE * window[i];
+				}
+			}
+			t1 = timed ? System.nanoTime() : 0;
+			if((needs & FrameDescriptor.MAGNITUDE) != 0){
+				fft.realFFT(data.windowed, re, im); //real input, no need of a zeroed imaginary part
+				final double[] re = this.re;
+				final double[] im = this.im;
+				final double[] mag = data.magnitude;
+				final double[] compressed = data.compressed;
+				final boolean compress = (needs & FrameDescriptor.COMPRESSED) != 0;
+				for(int i = 0; i < data.bins; i++){
+					mag[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+					if(compress) compressed[i] = Math.sqrt(mag[i]);
+				}
+			}
+			break;
+		}
+
+		t2 = timed ? System.nanoTime() : 0;
+
+		for(int d = 0; d < out.length; d++){
+			pipeline.get(d).compute(data, out[d]);
+		}
+
+		if(timed){
+			windowNanos += t1 - t0;
+			fftNanos += t2 - t1;
+			descriptorNanos += System.nanoTime() - t2;
+			timedFrames++;
+		}
+	}
+
+	private void windowFloat(short[] music, int offset){
+		//the window has the normalization in it, one multiply per sample
+		final float[] windowed = floatWindowed;
+		final float[] window = floatWindow;
+		for(int i = 0; i < size; i++){
+			windowed[i] = music[offset + i] * window[i];
+		}
+		if(windowedNeeded){
+			for(int i = 0; i < size; i++){
+				data.windowed[i] = windowed[i];
+			}
+		}
+	}
+
+	private void transformFloat(){
+		floatFft.realFFT(floatWindowed, floatRe, floatIm);
+		final float[] re = floatRe;
+		final float[] im = floatIm;
+		final double[] mag = data.magnitude;
+		for(int i = 0; i < data.bins; i++){
+			mag[i] = Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+		}
+		compress();
+	}
+
+	private void windowFixed(short[] music, int offset){
+		//the samples are already Q15, the product of two Q15 is Q30. Back to Q15 a quiet frame
+		//would round to nothing, so it is only shifted down as much as the 16 bits of the FFT need
+		final int[] windowed = fixedWindowed;
+		final int[] window = fixedWindow;
+		int bits = 0;
+		for(int i = 0; i < size; i++){
+			int v = music[offset + i] * window[i];
+			windowed[i] = v;
+			bits |= v ^ (v >> 31);
+		}
+		int shift = 0;
+		while((bits >> shift) > Short.MAX_VALUE) shift++; //at most 15, a loud frame is rounded as always
+		if(shift > 0){
+			int round = 1 << (shift - 1);
+			for(int i = 0; i < size; i++){
+				windowed[i] = (windowed[i] + round) >> shift;
+			}
+		}
+		fixedShift = shift;
+		if(windowedNeeded){
+			final double scale = (double)(1L << shift) / (1L << 30);
+			for(int i = 0; i < size; i++){
+				data.windowed[i] = windowed[i] * scale;
+			}
+		}
+	}
+
+	private void transformFixed(){
+		int exponent = fixedFft.realFFT(fixedWindowed, fixedRe, fixedIm);
+		final int[] re = fixedRe;
+		final int[] im = fixedIm;
+		final double[] mag = data.magnitude;
+		//back from Q30, from the shift of the window and from the shifts of the transform
+		exponent += fixedShift - 30;
+		final double scale = exponent >= 0 ? (double)(1L << exponent) : 1.0 / (1L << -exponent);
+		for(int i = 0; i < data.bins; i++){
+			mag[i] = Math.sqrt((double)re[i] * re[i] + (double)im[i] * im[i]) * scale;
+		}
+		compress();
+	}
+
+	private void compress(){
+		if((needs & FrameDescriptor.COMPRESSED) == 0) return;
+		final double[] mag = data.magnitude;
+		final double[] compressed = data.compressed;
+		for(int i = 0; i < data.bins; i++){
+			compressed[i] = Math.sqrt(mag[i]);
+		}
+	}
+
+	/**
+	 * Give the times of the frames processed since the last call to the Metrics, as
+	 * TIMING frames of the mean time for each frame timed. Once per block is enough
+	 */
+	public void flushMetrics(){
+		if(timedFrames == 0) return;
+		int frames = timedFrames * TIMING;
+		Metrics.WINDOW.record(windowNanos * TIMING, frames);
+		Metrics.FFT.record(fftNanos * TIMING, frames);
+		Metrics.DESCRIPTORS.record(descriptorNanos * TIMING, frames);
+		windowNanos = fftNanos = descriptorNanos = 0;
+		timedFrames = 0;
+	}
+}
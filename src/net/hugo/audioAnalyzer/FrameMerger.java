@@ -0,0 +1,181 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Turns the computed FrameBlocks into FrameRecords, in order, and keeps the
+ * statistics of the summarized descriptors for the HEAD: a RunningStats each,
+ * so nothing of the whole recording is kept in memory.
+ * 
+ * The variations (derivative over time) are published as they come, as the
+ * difference with the previous frame without normalizing it. Whoever draws
+ * them divides by the biggest one seen so far (see TrackPyramid.getPeak), so
+ * they do not have to wait until the end.
+ * 
+ * The blocks must be merged in the order of their frames, then everything is
+ * added in the same order as if a single thread had done it.
+ * 
+ * Without a batcher nobody wants the records, only the statistics are kept (see
+ * BatchAnalyzer).
+ */
+public class FrameMerger {
+
+	/** Probabilities of the quantiles of the statistics: median and 95th percentile */
+	public static final double[] QUANTILES = {0.5, 0.95};
+
+	private final FramePipeline pipeline;
+	private final FrameBatcher batcher;
+	private final int frames;
+	private final int descriptors;
+	private final int[] sizes;
+
+	//pools of reusable records, so the frames do not create garbage. One pool per descriptor,
+	//the ones of a single value share the same pool
+	private final FrameRecordPool valuePool = new FrameRecordPool(1, 4096);
+	private final FrameRecordPool[] pools;
+
+	private final boolean[] variations; //the descriptor has a variation to publish
+	private final float[] previous; //values of the previous frame for the variations
+	private final RunningStats[] stats; //of the summarized descriptors, null for the others
+
+	/**
+	 * @param pipeline the descriptors of the blocks
+	 * @param bins number of bins of the FFT
+	 * @param frames number of frames of the recording
+	 * @param batcher where the records go, null for only the statistics
+	 */
+	public FrameMerger(FramePipeline pipeline, int bins, int frames, FrameBatcher batcher){
+		this.pipeline = pipeline;
+		this.batcher = batcher;
+		this.frames = frames;
+		this.descriptors = pipeline.size();
+		sizes = new int[descriptors];
+		pools = new FrameRecordPool[descriptors];
+		variations = new boolean[descriptors];
+		previous = new float[descriptors];
+		stats = new RunningStats[descriptors];
+		for(int d = 0; d < descriptors; d++){
+			sizes[d] = pipeline.get(d).getSize(bins);
+			pools[d] = sizes[d] == 1 ? valuePool : new FrameRecordPool(sizes[d], 1024);
+			variations[d] = batcher != null && pipeline.get(d).getVariation() != null;
+			if(pipeline.get(d).isSummarized()) stats[d] = new RunningStats(QUANTILES);
+		}
+	}
+
+	/**
+	 * @return values per frame of each descriptor, in the order of the pipeline
+	 */
+	public int[] getSizes(){
+		return sizes;
+	}
+
+	/**
+	 * @return the averages of the summarized descriptors of the frames merged so far, the values of the HEAD
+	 */
+	public float[] getSummary(){
+		RunningStats[] summarized = getStats();
+		float[] summary = new float[summarized.length];
+		for(int i = 0; i < summarized.length; i++){
+			summary[i] = (float)summarized[i].getMean();
+		}
+		return summary;
+	}
+
+	/**
+	 * @return the statistics of the summarized descriptors of the frames merged so far, in the
+	 * order of FramePipeline.getSummarized(). They keep changing with the next merges
+	 */
+	public RunningStats[] getStats(){
+		RunningStats[] summarized = new RunningStats[pipeline.getSummarized().size()];
+		int length = 0;
+		for(int d = 0; d < descriptors; d++){
+			if(stats[d] != null) summarized[length++] = stats[d];
+		}
+		return summarized;
+	}
+
+	/**
+	 * Publish the frames of the block and their variations, and add them to the statistics
+	 */
+	public void merge(FrameBlock block){
+		for(int i = 0; i < block.count; i++){
+			int f = block.first + i;
+			for(int d = 0; d < descriptors; d++){
+				float value = block.values[d][i * sizes[d]];
+				if(stats[d] != null) stats[d].add(value);
+				if(batcher == null) continue;
+				FrameRecord record = pools[d].obtain(pipeline.get(d).getDescriptor(), frames, f);
+				System.arraycopy(block.values[d], i * sizes[d], record.values, 0, sizes[d]);
+				record.length = sizes[d];
+				batcher.publish(record);
+				if(variations[d]){
+					if(f > 0){
+						//variation between the previous frame and this one, one less than the frames
+						FrameRecord variation = valuePool.obtain(pipeline.get(d).getVariation(), frames - 1, f - 1);
+						variation.values[0] = previous[d] - value;
+						variation.length = 1;
+						batcher.publish(variation);
+					}
+					previous[d] = value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forget the frames merged so far, the next block is the first frame again. For when the saved
+	 * frames can not be read to the end: the frames already published are published again
+	 */
+	public void reset(){
+		for(int d = 0; d < descriptors; d++){
+			if(stats[d] != null) stats[d] = new RunningStats(QUANTILES);
+		}
+	}
+
+	/**
+	 * @param musicLength number of samples of the recording
+	 * 
+	 * Publish the HEAD and flush everything
+	 */
+	public void finish(int musicLength){
+		if(batcher == null) return;
+		//HEAD DATA to be filled during process.... not send until the end with all the information
+		//the averages go in the order of the pipeline
+		FrameRecord headData = new FrameRecord(descriptors);
+		headData.descriptor = Descriptor.HEAD;
+		headData.frames = musicLength; //the head carries the number of samples
+		float[] summary = getSummary();
+		System.arraycopy(summary, 0, headData.values, 0, summary.length);
+		headData.length = summary.length;
+		batcher.publish(headData);
+		batcher.flush(); //the last values can not wait
+	}
+}
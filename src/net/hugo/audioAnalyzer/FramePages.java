@@ -0,0 +1,149 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * The frames of a recording at full detail, a page of PAGE frames at a time,
+ * for the FramePyramids of a long recording that only keep their coarse levels.
+ * Only the page being drawn (and the one before) is in memory.
+ * 
+ * The frames are read from the FrameStore of the analysis if there is one
+ * (see setStore), or computed again from the samples with a FrameKernel,
+ * which for a page is not much more than reading it.
+ * 
+ * Only for the thread that draws, nothing is synchronized. Nothing of Android,
+ * a frame that can not be read is just not drawn.
+ */
+public class FramePages {
+
+	public static final int PAGE = 1024; //frames of a page
+
+	private final PcmSource source;
+	private final AnalysisConfig config;
+	private final int frames;
+	private final FrameKernel kernel;
+	private final float[][] out; //scratch for the kernel
+	private final FrameBlock[] pages = new FrameBlock[2];
+	private int last = 0; //page used last, the other one is loaded again
+	private FrameStore.Reader store;
+
+	/**
+	 * @param source the recording, closed with the pages
+	 * @param config how the frames were cut
+	 * @param pipeline the descriptors of the frames
+	 * @param frames number of frames of the analysis
+	 */
+	public FramePages(PcmSource source, AnalysisConfig config, FramePipeline pipeline, int frames){
+		this.source = source;
+		this.config = config;
+		this.frames = frames;
+		int size = config.getFftSize();
+		kernel = new FrameKernel(size, config.getWindow(), config.getPrecision(), pipeline);
+		int[] sizes = new int[pipeline.size()];
+		out = new float[sizes.length][];
+		for(int d = 0; d < sizes.length; d++){
+			sizes[d] = pipeline.get(d).getSize(config.getBins());
+			out[d] = new float[sizes[d]];
+		}
+		for(int p = 0; p < pages.length; p++){
+			pages[p] = new FrameBlock(PAGE, size, config.getHop(), sizes);
+			pages[p].first = -1;
+		}
+	}
+
+	/**
+	 * @param store the frames of the same analysis, read from there from now on instead of computed.
+	 * Closed with the pages
+	 */
+	public void setStore(FrameStore.Reader store){
+		closeStore();
+		this.store = store;
+	}
+
+	/**
+	 * @param frame frame of the analysis
+	 * @return the page with the frame, its values are at (frame - page.first) * sizes[d]. null if it
+	 * can not be read. Valid until the next call for a frame of another page
+	 */
+	public FrameBlock get(int frame){
+		if(frame < 0 || frame >= frames) return null;
+		int first = frame - frame % PAGE;
+		for(int p = 0; p < pages.length; p++){
+			if(pages[p].first == first){
+				last = p;
+				return pages[p];
+			}
+		}
+		int p = 1 - last;
+		FrameBlock page = pages[p];
+		page.first = -1;
+		page.count = Math.min(PAGE, frames - first);
+		try {
+			if(store != null){
+				store.seek(first);
+				if(store.readBlock(page, page.count) < page.count) return null;
+			} else {
+				int hop = config.getHop();
+				int samples = (page.count - 1) * hop + config.getFftSize();
+				long position = (config.getFirstFrame() + (long)first) * hop;
+				if(source.read(position, page.samples, 0, samples) < samples) return null;
+				page.compute(kernel, out);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		page.first = first;
+		last = p;
+		return page;
+	}
+
+	public void close(){
+		closeStore();
+		try {
+			source.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void closeStore(){
+		if(store == null) return;
+		try {
+			store.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		store = null;
+	}
+}
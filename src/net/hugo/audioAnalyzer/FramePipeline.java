@@ -0,0 +1,102 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.ArrayList;
+
+/**
+ * @author hugosg
+ * 
+ * The list of descriptors computed for each frame. The values of the records,
+ * the variations and the averages of the HEAD follow the order in which the
+ * descriptors were added.
+ */
+public class FramePipeline {
+
+	private final ArrayList<FrameDescriptor> descriptors = new ArrayList<FrameDescriptor>();
+
+	/**
+	 * @return the pipeline with the descriptors we always had: waveform, spectrum,
+	 * spectral centroid, energy and zero crossing, and the time domain ones that
+	 * come almost for free with the zero crossing: RMS, peak and DC offset
+	 */
+	public static FramePipeline createDefault(){
+		FramePipeline pipeline = new FramePipeline();
+		pipeline.add(new WaveformDescriptor());
+		pipeline.add(new SpectrumDescriptor());
+		pipeline.add(new CentroidDescriptor());
+		pipeline.add(new EnergyDescriptor());
+		pipeline.add(new ZeroCrossingDescriptor());
+		pipeline.add(new RmsDescriptor());
+		pipeline.add(new PeakDescriptor());
+		pipeline.add(new DcOffsetDescriptor());
+		return pipeline;
+	}
+
+	/**
+	 * @return the pipeline itself so the calls can be chained
+	 */
+	public FramePipeline add(FrameDescriptor descriptor){
+		descriptors.add(descriptor);
+		return this;
+	}
+
+	public int size(){
+		return descriptors.size();
+	}
+
+	public FrameDescriptor get(int i){
+		return descriptors.get(i);
+	}
+
+	/**
+	 * @return everything needed by at least one descriptor, the
+	 * values that imply others already include them
+	 */
+	public int getNeeds(){
+		int needs = 0;
+		for(int i = 0; i < descriptors.size(); i++){
+			needs |= descriptors.get(i).getNeeds();
+		}
+		if((needs & FrameDescriptor.COMPRESSED) != 0) needs |= FrameDescriptor.MAGNITUDE;
+		if((needs & FrameDescriptor.MAGNITUDE) != 0) needs |= FrameDescriptor.WINDOWED;
+		return needs;
+	}
+
+	/**
+	 * @return the descriptors whose average goes into the HEAD, in order
+	 */
+	public ArrayList<Descriptor> getSummarized(){
+		ArrayList<Descriptor> summarized = new ArrayList<Descriptor>();
+		for(int i = 0; i < descriptors.size(); i++){
+			if(descriptors.get(i).isSummarized()) summarized.add(descriptors.get(i).getDescriptor());
+		}
+		return summarized;
+	}
+}
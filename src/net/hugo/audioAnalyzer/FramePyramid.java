@@ -0,0 +1,224 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Level of detail pyramid of a track of frames, so a view of any part of the
+ * recording at any zoom costs the pixels drawn and not the frames behind them.
+ * 
+ * Level 0 has one node per frame, each level above has one node per FACTOR
+ * nodes of the level below with their min, max and mean. The subclasses keep
+ * the values, this class keeps the shape and closes the upper nodes as soon as
+ * their children are there, so the pyramid can be used while the frames arrive.
+ * The frames must be added in order, which is how the Analyzer sends them.
+ * 
+ * Each level has an open node that gets the values as they come, and a node
+ * goes into the open one of the level above when it is closed, so a level is
+ * built without the levels below. That way a long recording keeps in memory
+ * only the levels from base up, the first ones whose nodes fit in the bytes
+ * given, and the finer views read the frames from the FramePages when drawn.
+ * A short recording keeps all the levels, base is 0.
+ */
+public abstract class FramePyramid {
+
+	public static final int FACTOR = 4;
+	private static final int SHIFT = 2; //log2 of FACTOR
+
+	/** get() reads the frames from the pages, see choose() */
+	protected static final int PAGED = -1;
+	/** get() has nothing to read, see choose() */
+	protected static final int NONE = -2;
+
+	protected final int frames;
+	protected final int levels;
+	/** Number of nodes of each level */
+	protected final int[] nodes;
+	/** Nodes of each level closed, with their values ready if the level is kept */
+	protected final int[] built;
+	/** First level kept in memory */
+	protected final int base;
+	/** Frames added so far */
+	protected int filled = 0;
+
+	/** Where the frames of the levels below base come from, null if nowhere */
+	protected FramePages pages;
+	/** Index of the descriptor in the pipeline of the pages */
+	protected int index;
+
+	//first and last node of the level chosen by choose()
+	protected int first, last;
+
+	/**
+	 * @param frames number of frames of the track
+	 * @param frameBytes bytes of a node of level 0
+	 * @param nodeBytes bytes of a node of the levels above
+	 * @param maxBytes the levels kept should not take more than this
+	 */
+	protected FramePyramid(int frames, int frameBytes, int nodeBytes, long maxBytes){
+		this.frames = Math.max(frames, 1);
+		int levels = 1;
+		for(int n = this.frames; n > 1; n = (n + FACTOR - 1) >> SHIFT){
+			levels++;
+		}
+		this.levels = levels;
+		nodes = new int[levels];
+		built = new int[levels];
+		for(int k = 0; k < levels; k++){
+			nodes[k] = (int)((this.frames + (1L << (SHIFT * k)) - 1) >> (SHIFT * k));
+		}
+		//the finest level that fits, the top one always stays
+		int base = 0;
+		long bytes = (long)nodes[0] * frameBytes;
+		for(int k = 1; k < levels; k++){
+			bytes += (long)nodes[k] * nodeBytes;
+		}
+		while(base + 1 < levels && bytes > maxBytes){
+			bytes -= (long)nodes[base] * (base == 0 ? frameBytes : nodeBytes);
+			base++;
+		}
+		this.base = base;
+	}
+
+	public int getFrames(){
+		return frames;
+	}
+
+	public int getLevels(){
+		return levels;
+	}
+
+	/**
+	 * @return first level kept in memory, 0 if all of them
+	 */
+	public int getBase(){
+		return base;
+	}
+
+	/**
+	 * @return frames added so far
+	 */
+	public int getFilled(){
+		return filled;
+	}
+
+	/**
+	 * @param pages the frames of the analysis at full detail, for the views finer than the base level
+	 * @param index index of the descriptor in the pipeline of the pages
+	 */
+	public void setPages(FramePages pages, int index){
+		this.pages = pages;
+		this.index = index;
+	}
+
+	/**
+	 * The subclass calls it after putting the values of the next frame in level 0, if it is kept,
+	 * and in the open node of level 1
+	 */
+	protected void added(){
+		filled++;
+		built[0] = filled;
+		//every FACTOR nodes of a level complete one of the level above
+		for(int k = 1; k < levels && filled % (1 << (SHIFT * k)) == 0; k++){
+			close(k, built[k]++);
+		}
+	}
+
+	/**
+	 * Close the last nodes, the ones that will not get all their children. Call it once no more frames come
+	 */
+	public void finish(){
+		for(int k = 1; k < levels; k++){
+			int needed = (int)((filled + (1L << (SHIFT * k)) - 1) >> (SHIFT * k));
+			while(built[k] < needed){
+				close(k, built[k]++);
+			}
+		}
+	}
+
+	/**
+	 * @param level level of the node
+	 * @param node index of the node in the level
+	 * @return number of frames below the node
+	 */
+	protected int count(int level, int node){
+		int first = node << (SHIFT * level);
+		return Math.max(0, Math.min(1 << (SHIFT * level), filled - first));
+	}
+
+	/**
+	 * @param span number of frames wanted in a single value
+	 * @return the coarsest level whose nodes are not bigger than span
+	 */
+	protected int levelFor(int span){
+		int k = 0;
+		while(k + 1 < levels && (1 << (SHIFT * (k + 1))) <= span){
+			k++;
+		}
+		return k;
+	}
+
+	/**
+	 * @param level level to read
+	 * @param from first frame wanted
+	 * @return the first node of the level with from
+	 */
+	protected static int firstNode(int level, int from){
+		return from >> (SHIFT * level);
+	}
+
+	/**
+	 * @param from first frame, already in the frames added
+	 * @param to frame after the last one, already in the frames added
+	 * @return the level to read, with its nodes in first and last, or PAGED for reading the
+	 * frames from to to from the pages, or NONE
+	 * 
+	 * The nodes used may go a bit outside of the frames, never more than one node of the level
+	 * used, which is smaller than the range unless the range is finer than base and there are no
+	 * pages. If the nodes are not closed yet a finer level is used, only the frames of its closed
+	 * nodes
+	 */
+	protected int choose(int from, int to){
+		int wanted = levelFor(to - from);
+		if(wanted < base && pages != null) return PAGED;
+		for(int k = Math.max(wanted, base); k >= base; k--){
+			first = firstNode(k, from);
+			last = Math.min(firstNode(k, to - 1), built[k] - 1);
+			if(last >= first) return k;
+		}
+		return pages != null ? PAGED : NONE;
+	}
+
+	/**
+	 * Put the open node of the level in place if the level is kept, add it to the open node of the
+	 * level above and start the next one
+	 */
+	protected abstract void close(int level, int node);
+}
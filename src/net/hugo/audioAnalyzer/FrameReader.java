@@ -0,0 +1,153 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * Reads a recording as a sequence of overlapping frames, the same frames the
+ * Analyzer used to cut from the music array: frame f starts at sample f * hop
+ * and is size samples long.
+ * 
+ * Only the current frame is kept in memory, each call to next() slides it by
+ * hop samples and reads the new part from the PcmSource in bulk. So the memory
+ * is the same for a recording of 1 second or of 1 hour.
+ * 
+ * The hop can be bigger than the size, then the samples between two frames are
+ * skipped by next(). nextBlock() still reads them, the block is contiguous.
+ */
+public class FrameReader {
+
+	private final PcmSource source;
+	private final short[] frame;
+	private final int size;
+	private final int hop;
+	private boolean started = false;
+
+	/**
+	 * @param source the samples, read from its current position
+	 * @param size number of samples of each frame
+	 * @param hop how many samples we move between frames
+	 */
+	public FrameReader(PcmSource source, int size, int hop){
+		if(hop <= 0){
+			throw new IllegalArgumentException("hop must be positive, got " + hop);
+		}
+		this.source = source;
+		this.frame = new short[size];
+		this.size = size;
+		this.hop = hop;
+	}
+
+	/**
+	 * @return false if the file ended before the next frame was complete
+	 * 
+	 * Move to the next frame. The first call reads the first complete frame.
+	 */
+	public boolean next() throws IOException {
+		int from = 0;
+		if(started){
+			if(hop < size){
+				//keep the overlapping part and read only the new samples
+				System.arraycopy(frame, hop, frame, 0, size - hop);
+				from = size - hop;
+			} else {
+				skip(hop - size);
+			}
+		}
+		started = true;
+		return readFully(frame, from, size - from) == size - from;
+	}
+
+	/**
+	 * @param block receives the samples of the frames one after the other, so frame i of the
+	 * block starts at i * hop. It needs (count - 1) * hop + size samples
+	 * @param count how many frames to read
+	 * @return how many complete frames were read, less than count if the file ended
+	 * 
+	 * Like calling next() count times, but the samples go to a bigger array so a whole block of frames
+	 * can be processed somewhere else. After the call the current frame is the last one of the block.
+	 */
+	public int nextBlock(short[] block, int count) throws IOException {
+		int from = 0;
+		if(started){
+			if(hop < size){
+				//the overlapping part of the last frame is the beginning of the block
+				System.arraycopy(frame, hop, block, 0, size - hop);
+				from = size - hop;
+			} else {
+				skip(hop - size);
+			}
+		}
+		started = true;
+		int end = (count - 1) * hop + size;
+		int read = from + readFully(block, from, end - from);
+		int frames = read < size ? 0 : (read - size) / hop + 1;
+		if(frames > 0){
+			System.arraycopy(block, (frames - 1) * hop, frame, 0, size);
+		}
+		return frames;
+	}
+
+	/**
+	 * @return the samples of the current frame. The array is reused by next()
+	 */
+	public short[] getFrame(){
+		return frame;
+	}
+
+	/**
+	 * Move the source over samples that are in no frame
+	 */
+	private void skip(int samples){
+		if(samples > 0) source.seek(Math.min(source.position() + samples, source.length()));
+	}
+
+	/**
+	 * @return number of samples read, less than len only at the end of the recording
+	 */
+	private int readFully(short[] dst, int off, int len) throws IOException {
+		int done = 0;
+		while(done < len){
+			int n = source.read(dst, off + done, len - done);
+			if(n <= 0) break;
+			done += n;
+		}
+		return done;
+	}
+
+	/**
+	 * Close the source
+	 */
+	public void close() throws IOException {
+		source.close();
+	}
+}
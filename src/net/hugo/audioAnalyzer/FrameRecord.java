@@ -0,0 +1,75 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * The values of one descriptor for one frame, sent from the Analyzer to the
+ * AnalyzerListener. The values go in a plain float array so nothing is boxed.
+ * 
+ * Records come from a FrameRecordPool and are given back with recycle() once
+ * the listener is done with them, so do not keep a reference after analyzePart().
+ */
+public class FrameRecord {
+
+	/** What the values are */
+	public Descriptor descriptor;
+	/** Number of frames of the track. For the HEAD it is the number of samples of the recording */
+	public int frames;
+	/** Index of this frame in the track */
+	public int frame;
+	/** The values, only the first length are valid */
+	public final float[] values;
+	/** Number of valid values */
+	public int length;
+
+	private final FrameRecordPool pool;
+
+	/**
+	 * @param capacity max number of values
+	 * 
+	 * A record that does not belong to any pool, recycle() does nothing
+	 */
+	public FrameRecord(int capacity){
+		this(capacity, null);
+	}
+
+	FrameRecord(int capacity, FrameRecordPool pool){
+		this.values = new float[capacity];
+		this.pool = pool;
+	}
+
+	/**
+	 * Give the record back to its pool so it can be used for another frame
+	 */
+	public void recycle(){
+		if(pool != null) pool.release(this);
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Pool of FrameRecords of the same capacity. The Analyzer takes the records
+ * in the background thread and the listener gives them back in the UI thread,
+ * so both methods are synchronized.
+ * 
+ * When the pool is empty a new record is created, and when it is full the
+ * records given back are left to the garbage collector. So the pool never
+ * blocks, it only keeps maxFree records ready to be used again.
+ */
+public class FrameRecordPool {
+
+	private final int capacity;
+	private final FrameRecord[] free;
+	private int count = 0;
+
+	/**
+	 * @param capacity number of values of each record
+	 * @param maxFree max number of unused records kept
+	 */
+	public FrameRecordPool(int capacity, int maxFree){
+		this.capacity = capacity;
+		this.free = new FrameRecord[maxFree];
+	}
+
+	/**
+	 * @return a record ready to be filled, with length set to 0
+	 */
+	public synchronized FrameRecord obtain(Descriptor descriptor, int frames, int frame){
+		FrameRecord record;
+		if(count > 0){
+			record = free[--count];
+			free[count] = null;
+		} else {
+			record = new FrameRecord(capacity, this);
+			Metrics.allocated(capacity * 4 + 32);
+		}
+		record.descriptor = descriptor;
+		record.frames = frames;
+		record.frame = frame;
+		record.length = 0;
+		return record;
+	}
+
+	synchronized void release(FrameRecord record){
+		if(count < free.length){
+			free[count++] = record;
+		}
+	}
+}
@@ -0,0 +1,434 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author hugosg
+ * 
+ * File with the values of every descriptor for every frame of a recording, so
+ * the analysis does not have to be done again: the LiveAnalyzer saves one next
+ * to the recording, and the AnalysisCache keeps one per analyzed recording.
+ * 
+ * The file is a header followed by the frames, one after the other, each one
+ * with the values of the descriptors in the order of the pipeline (big endian
+ * as the recordings). The header:
+ * 
+ * 	MAGIC, VERSION, fft size, hop, window, precision, first frame, number of descriptors,
+ * 	then ordinal, size and encoding of each descriptor,
+ * 	then samples (long), modified (long), checksum (long), frames and complete (0 or 1)
+ * 
+ * The values are FLOAT (32 bit float), or SCALED (a float with the max absolute
+ * value of the frame and then 16 bit values relative to it). SCALED is half
+ * the size and enough for drawing a spectrum, so it is used for the descriptors
+ * with several values per frame when the Writer is compact.
+ * 
+ * The tail of the header is written when the Writer is finished, a store that
+ * was not finished, or that missed some audio, is never complete and is not used.
+ * Neither is one whose file is not exactly as long as its frames, cut or broken.
+ * modified and checksum tell which recording the frames come from, see AnalysisCache.
+ */
+public class FrameStore {
+
+	public static final int FLOAT = 0;
+	public static final int SCALED = 1;
+
+	private static final int MAGIC = 0x48465253; //"HFRS"
+	private static final int VERSION = 4; //3 had no precision
+	private static final int FRAMES_PER_IO = 64; //frames encoded before each write / decoded after each read
+	private static final int TAIL = 8 + 8 + 8 + 4 + 4; //samples, modified, checksum, frames, complete
+
+	private static final int HEAD = 8 * 4; //the fixed part before the descriptors
+
+	private static int headerSize(int descriptors){
+		return HEAD + descriptors * 12 + TAIL;
+	}
+
+	private static int valueBytes(int size, int encoding){
+		return encoding == SCALED ? 4 + size * 2 : size * 4;
+	}
+
+	/**
+	 * @param sizes values per frame of each descriptor
+	 * @param frames number of frames
+	 * @param compact as in the Writer
+	 * @return bytes of the file once all the frames are written
+	 */
+	public static long getFileSize(int[] sizes, int frames, boolean compact){
+		long frameBytes = 0;
+		for(int d = 0; d < sizes.length; d++){
+			frameBytes += valueBytes(sizes[d], compact && sizes[d] > 1 ? SCALED : FLOAT);
+		}
+		return headerSize(sizes.length) + frameBytes * frames;
+	}
+
+	/**
+	 * Writes the frames as they are computed
+	 */
+	public static class Writer {
+
+		private final File path;
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final int[] sizes;
+		private final int[] encodings;
+		private final int descriptors;
+		private final ByteBuffer bytes;
+		private final int frameBytes;
+		private int frames = 0;
+
+		/**
+		 * @param file where to write, it is created again if it exists
+		 * @param config how the frames were cut
+		 * @param pipeline the descriptors of the frames
+		 * @param sizes values per frame of each descriptor of the pipeline
+		 * @param compact true for saving the descriptors of several values as SCALED
+		 */
+		public Writer(File file, AnalysisConfig config, FramePipeline pipeline, int[] sizes, boolean compact) throws IOException {
+			if(file.exists()) file.delete();
+			this.path = file;
+			this.file = new RandomAccessFile(file, "rw");
+			this.channel = this.file.getChannel();
+			this.sizes = sizes;
+			this.descriptors = sizes.length;
+			encodings = new int[descriptors];
+			int frameBytes = 0;
+			for(int d = 0; d < descriptors; d++){
+				encodings[d] = compact && sizes[d] > 1 ? SCALED : FLOAT;
+				frameBytes += valueBytes(sizes[d], encodings[d]);
+			}
+			this.frameBytes = frameBytes;
+			bytes = ByteBuffer.allocateDirect(Math.max(frameBytes * FRAMES_PER_IO, headerSize(descriptors))).order(ByteOrder.BIG_ENDIAN);
+
+			//header, the tail is left empty until finish()
+			bytes.clear();
+			bytes.putInt(MAGIC).putInt(VERSION).putInt(config.getFftSize()).putInt(config.getHop());
+			bytes.putInt(config.getWindow().ordinal()).putInt(config.getPrecision().ordinal());
+			bytes.putInt(config.getFirstFrame()).putInt(descriptors);
+			for(int d = 0; d < descriptors; d++){
+				bytes.putInt(pipeline.get(d).getDescriptor().ordinal()).putInt(sizes[d]).putInt(encodings[d]);
+			}
+			for(int i = 0; i < TAIL; i++){
+				bytes.put((byte)0);
+			}
+			bytes.flip();
+			writeBytes();
+			bytes.clear();
+		}
+
+		public Writer(File file, AnalysisConfig config, FramePipeline pipeline, int[] sizes) throws IOException {
+			this(file, config, pipeline, sizes, false);
+		}
+
+		public File getFile(){
+			return path;
+		}
+
+		/**
+		 * @return frames written so far
+		 */
+		public int getFrames(){
+			return frames;
+		}
+
+		/**
+		 * @param values one array per descriptor with the values of the next frame
+		 */
+		public void write(float[][] values) throws IOException {
+			for(int d = 0; d < descriptors; d++){
+				encode(values[d], 0, d);
+			}
+			endFrame();
+		}
+
+		/**
+		 * Add all the frames of the block, they must be the next ones
+		 */
+		public void writeBlock(FrameBlock block) throws IOException {
+			for(int i = 0; i < block.count; i++){
+				for(int d = 0; d < descriptors; d++){
+					encode(block.values[d], i * sizes[d], d);
+				}
+				endFrame();
+			}
+		}
+
+		/**
+		 * @param samples samples of the recording the frames come from
+		 * @param complete false if some audio was not analyzed
+		 * 
+		 * Write what is waiting, fill the header and close the file
+		 */
+		public void finish(long samples, boolean complete) throws IOException {
+			finish(samples, 0, 0, complete);
+		}
+
+		/**
+		 * @param samples samples of the recording the frames come from
+		 * @param modified last modification of the recording
+		 * @param checksum of the recording, see AnalysisCache
+		 * @param complete false if some audio was not analyzed
+		 * 
+		 * Write what is waiting, fill the header and close the file
+		 */
+		public void finish(long samples, long modified, long checksum, boolean complete) throws IOException {
+			try {
+				flush();
+				ByteBuffer tail = ByteBuffer.allocate(TAIL).order(ByteOrder.BIG_ENDIAN);
+				tail.putLong(samples).putLong(modified).putLong(checksum).putInt(frames).putInt(complete ? 1 : 0);
+				tail.flip();
+				long position = headerSize(descriptors) - TAIL;
+				while(tail.hasRemaining()){
+					position += channel.write(tail, position);
+				}
+			} finally {
+				channel.close();
+				file.close();
+			}
+		}
+
+		/**
+		 * Close the file without finishing it, the store stays incomplete
+		 */
+		public void abort(){
+			try {
+				channel.close();
+				file.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void encode(float[] values, int offset, int d){
+			final ByteBuffer bytes = this.bytes;
+			final int size = sizes[d];
+			if(encodings[d] == SCALED){
+				float max = 0;
+				for(int i = 0; i < size; i++){
+					float v = Math.abs(values[offset + i]);
+					if(v > max) max = v;
+				}
+				bytes.putFloat(max);
+				float scale = max > 0 ? Short.MAX_VALUE / max : 0;
+				for(int i = 0; i < size; i++){
+					bytes.putShort((short)Math.round(values[offset + i] * scale));
+				}
+			} else {
+				for(int i = 0; i < size; i++){
+					bytes.putFloat(values[offset + i]);
+				}
+			}
+		}
+
+		private void endFrame() throws IOException {
+			frames++;
+			if(bytes.remaining() < frameBytes) flush();
+		}
+
+		private void flush() throws IOException {
+			bytes.flip();
+			writeBytes();
+			bytes.clear();
+		}
+
+		private void writeBytes() throws IOException {
+			while(bytes.hasRemaining()){
+				channel.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Reads the frames back, block by block
+	 */
+	public static class Reader {
+
+		private final File path;
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer bytes;
+		private final int frameBytes;
+
+		public final int fftSize;
+		public final int hop;
+		/** Ordinal of the WindowType */
+		public final int window;
+		/** Ordinal of the Precision the frames were computed with */
+		public final int precision;
+		public final int firstFrame;
+		/** Ordinal of the Descriptor of each value of a frame */
+		public final int[] ordinals;
+		/** Values per frame of each descriptor */
+		public final int[] sizes;
+		/** FLOAT or SCALED, for each descriptor */
+		public final int[] encodings;
+		public final long samples;
+		public final long modified;
+		public final long checksum;
+		public final int frames;
+		/** Finished with all the audio, and the file has all the frames */
+		public final boolean complete;
+
+		/**
+		 * @param file a file written by a Writer
+		 */
+		public Reader(File file) throws IOException {
+			this.path = file;
+			this.file = new RandomAccessFile(file, "r");
+			this.channel = this.file.getChannel();
+			try {
+				ByteBuffer head = ByteBuffer.allocate(HEAD).order(ByteOrder.BIG_ENDIAN);
+				readFully(head);
+				if(head.getInt() != MAGIC || head.getInt() != VERSION) throw new IOException("Not a frame store: " + file);
+				fftSize = head.getInt();
+				hop = head.getInt();
+				window = head.getInt();
+				precision = head.getInt();
+				firstFrame = head.getInt();
+				int descriptors = head.getInt();
+				if(descriptors < 0 || descriptors > Descriptor.values().length) throw new IOException("Broken frame store: " + file);
+				head = ByteBuffer.allocate(headerSize(descriptors) - HEAD).order(ByteOrder.BIG_ENDIAN);
+				readFully(head);
+				ordinals = new int[descriptors];
+				sizes = new int[descriptors];
+				encodings = new int[descriptors];
+				int frameBytes = 0;
+				for(int d = 0; d < descriptors; d++){
+					ordinals[d] = head.getInt();
+					sizes[d] = head.getInt();
+					encodings[d] = head.getInt();
+					if(sizes[d] < 0 || (encodings[d] != FLOAT && encodings[d] != SCALED)) throw new IOException("Broken frame store: " + file);
+					frameBytes += valueBytes(sizes[d], encodings[d]);
+				}
+				this.frameBytes = Math.max(frameBytes, 1);
+				samples = head.getLong();
+				modified = head.getLong();
+				checksum = head.getLong();
+				frames = head.getInt();
+				//a file cut short, or with something after the frames, has the header of a good one
+				complete = head.getInt() == 1 && frames >= 0 && file.length() == headerSize(descriptors) + (long)frameBytes * frames;
+				bytes = ByteBuffer.allocateDirect(this.frameBytes * FRAMES_PER_IO).order(ByteOrder.BIG_ENDIAN);
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * @return true if the frames are all the frames of samples samples analyzed with
+		 * this pipeline and config
+		 */
+		public boolean matches(FramePipeline pipeline, AnalysisConfig config, long samples, int frames){
+			if(!complete || this.samples != samples || this.frames != frames) return false;
+			if(fftSize != config.getFftSize() || hop != config.getHop() || window != config.getWindow().ordinal() || firstFrame != config.getFirstFrame()) return false;
+			if(precision != config.getPrecision().ordinal()) return false; //the sidecar has the precision of the recorder
+			if(pipeline.size() != ordinals.length) return false;
+			int bins = config.getBins();
+			for(int d = 0; d < ordinals.length; d++){
+				if(pipeline.get(d).getDescriptor().ordinal() != ordinals[d] || pipeline.get(d).getSize(bins) != sizes[d]) return false;
+			}
+			return true;
+		}
+
+		public File getFile(){
+			return path;
+		}
+
+		/**
+		 * @param frame the next readBlock() starts at this frame, 0 is the first frame of the store
+		 */
+		public void seek(int frame) throws IOException {
+			channel.position(headerSize(sizes.length) + (long)frame * frameBytes);
+		}
+
+		/**
+		 * @param block receives the values, its sizes must be the sizes of the store
+		 * @param count max number of frames to read
+		 * @return number of frames read, less than count at the end
+		 * 
+		 * Only the values of the block are filled, not the samples
+		 */
+		public int readBlock(FrameBlock block, int count) throws IOException {
+			int read = 0;
+			while(read < count){
+				int n = Math.min(count - read, FRAMES_PER_IO);
+				bytes.clear();
+				bytes.limit(n * frameBytes);
+				while(bytes.hasRemaining()){
+					if(channel.read(bytes) < 0) break;
+				}
+				boolean ended = bytes.hasRemaining();
+				n = bytes.position() / frameBytes; //only complete frames
+				bytes.flip();
+				for(int i = 0; i < n; i++){
+					for(int d = 0; d < sizes.length; d++){
+						decode(block.values[d], (read + i) * sizes[d], d);
+					}
+				}
+				read += n;
+				if(n == 0 || ended) break;
+			}
+			block.count = read;
+			return read;
+		}
+
+		public void close() throws IOException {
+			channel.close();
+			file.close();
+		}
+
+		private void decode(float[] values, int offset, int d){
+			final ByteBuffer bytes = this.bytes;
+			final int size = sizes[d];
+			if(encodings[d] == SCALED){
+				float scale = bytes.getFloat() / Short.MAX_VALUE;
+				for(int i = 0; i < size; i++){
+					values[offset + i] = bytes.getShort() * scale;
+				}
+			} else {
+				for(int i = 0; i < size; i++){
+					values[offset + i] = bytes.getFloat();
+				}
+			}
+		}
+
+		private void readFully(ByteBuffer buffer) throws IOException {
+			while(buffer.hasRemaining()){
+				if(channel.read(buffer) < 0) throw new IOException("Frame store too short");
+			}
+			buffer.flip();
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * The time domain sums of a run of overlapping frames (frame i starts at
+ * i * hop): zero crossings, sum, sum of squares and peak of the samples of
+ * each frame. The samples are cut in blocks of hop samples, the sums of each
+ * block are done once, and the sums of a frame are the blocks it covers: the
+ * next frame adds the block that comes in and takes away the one that goes out.
+ * So every sample is read once, not size / hop times, which is what matters at
+ * the small hops of speech.
+ * 
+ * That needs a size that is a multiple of the hop. If it is not, every frame
+ * is summed on its own, same values. The peak is the max of the blocks of the
+ * frame, kept in a queue of the blocks that can still be the max.
+ * 
+ * The values are exactly the ones of summing each frame on its own, the zero
+ * crossings included: a frame starts as if the sample before it was 0.
+ */
+public class HopSums {
+
+	/** Zero crossings of each frame */
+	public int[] zeroCrossings = new int[0];
+	/** Sum of the samples of each frame */
+	public long[] sums = new long[0];
+	/** Sum of the squares of the samples of each frame */
+	public long[] squares = new long[0];
+	/** Max absolute value of the samples of each frame */
+	public int[] peaks = new int[0];
+
+	//per block, grown as needed
+	private int[] blockCrossings = new int[0]; //inside the block and from the block before
+	private int[] blockEdges = new int[0]; //from the last sample of the block before, 0 or 1
+	private long[] blockSums = new long[0];
+	private long[] blockSquares = new long[0];
+	private int[] blockPeaks = new int[0];
+	private int[] queue = new int[0]; //blocks in the window by decreasing peak
+
+	/**
+	 * @param samples the samples of the frames, frame i starts at offset + i * hop
+	 * @param offset where the first frame starts
+	 * @param count number of frames
+	 * @param size samples of each frame
+	 * @param hop samples between the start of two frames
+	 */
+	public void compute(short[] samples, int offset, int count, int size, int hop){
+		ensureFrames(count);
+		if(count == 0) return;
+		if(hop > size || size % hop != 0){
+			for(int f = 0; f < count; f++){
+				frame(samples, offset + f * hop, size, f);
+			}
+			return;
+		}
+
+		int k = size / hop; //blocks per frame
+		int blocks = count + k - 1;
+		ensureBlocks(blocks, k);
+		for(int b = 0; b < blocks; b++){
+			block(samples, offset + b * hop, hop, b);
+		}
+
+		final int[] crossings = blockCrossings;
+		final long[] bs = blockSums;
+		final long[] bq = blockSquares;
+		final int[] bp = blockPeaks;
+		final int[] queue = this.queue;
+		int head = 0, tail = 0; //queue of block indexes, circular over queue.length
+		int z = 0;
+		long s = 0, q = 0;
+		for(int b = 0; b < k - 1; b++){
+			z += crossings[b];
+			s += bs[b];
+			q += bq[b];
+			tail = push(queue, head, tail, b);
+		}
+		for(int f = 0; f < count; f++){
+			int in = f + k - 1; //the block that comes in
+			z += crossings[in];
+			s += bs[in];
+			q += bq[in];
+			tail = push(queue, head, tail, in);
+			if(queue[head % queue.length] < f) head++; //the max left the frame
+			
+			//the crossing into the first block is from outside the frame, the frame starts after a 0
+			zeroCrossings[f] = z - blockEdges[f] + (samples[offset + f * hop] < 0 ? 1 : 0);
+			sums[f] = s;
+			squares[f] = q;
+			peaks[f] = bp[queue[head % queue.length]];
+			
+			z -= crossings[f];
+			s -= bs[f];
+			q -= bq[f];
+		}
+	}
+
+	/**
+	 * @return the new tail, after dropping the blocks that can not be the max anymore
+	 */
+	private int push(int[] queue, int head, int tail, int block){
+		final int[] bp = blockPeaks;
+		while(tail > head && bp[queue[(tail - 1) % queue.length]] <= bp[block]) tail--;
+		queue[tail % queue.length] = block;
+		return tail + 1;
+	}
+
+	private void block(short[] samples, int offset, int length, int b){
+		int crossings = 0;
+		long sum = 0, squares = 0;
+		int peak = 0;
+		int previous = offset > 0 ? samples[offset - 1] : 0;
+		blockEdges[b] = (samples[offset] ^ previous) < 0 ? 1 : 0;
+		for(int i = offset; i < offset + length; i++){
+			int value = samples[i];
+			if((value ^ previous) < 0) crossings++; //the signs are different
+			sum += value;
+			squares += value * value;
+			int abs = value < 0 ? -value : value;
+			if(abs > peak) peak = abs;
+			previous = value;
+		}
+		blockCrossings[b] = crossings;
+		blockSums[b] = sum;
+		blockSquares[b] = squares;
+		blockPeaks[b] = peak;
+	}
+
+	private void frame(short[] samples, int offset, int length, int f){
+		int crossings = 0;
+		long sum = 0, squares = 0;
+		int peak = 0;
+		int previous = 0;
+		for(int i = offset; i < offset + length; i++){
+			int value = samples[i];
+			if((value ^ previous) < 0) crossings++;
+			sum += value;
+			squares += value * value;
+			int abs = value < 0 ? -value : value;
+			if(abs > peak) peak = abs;
+			previous = value;
+		}
+		zeroCrossings[f] = crossings;
+		sums[f] = sum;
+		this.squares[f] = squares;
+		peaks[f] = peak;
+	}
+
+	private void ensureFrames(int count){
+		if(zeroCrossings.length >= count) return;
+		zeroCrossings = new int[count];
+		sums = new long[count];
+		squares = new long[count];
+		peaks = new int[count];
+		Metrics.allocated(count * 24L);
+	}
+
+	private void ensureBlocks(int blocks, int k){
+		if(blockCrossings.length < blocks){
+			blockCrossings = new int[blocks];
+			blockEdges = new int[blocks];
+			blockSums = new long[blocks];
+			blockSquares = new long[blocks];
+			blockPeaks = new int[blocks];
+			Metrics.allocated(blocks * 28L);
+		}
+		if(queue.length < k + 1) queue = new int[k + 1];
+	}
+}
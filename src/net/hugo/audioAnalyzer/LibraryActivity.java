@@ -0,0 +1,175 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+
+import android.app.ListActivity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+
+/**
+ * @author hugosg
+ * 
+ * The recordings of the RecordingLibrary in a list. The menu sorts them by date,
+ * duration or energy and filters them by duration or energy, all from the catalog.
+ * Picking one returns its id in the "recording" extra.
+ */
+public class LibraryActivity extends ListActivity {
+
+	private static final int NEWEST = 1;
+	private static final int LONGEST = 2;
+	private static final int LOUDEST = 3;
+	private static final int ALL = 4;
+	private static final int LONG = 5;
+	private static final int SHORT = 6;
+	private static final int LOUD = 7;
+
+	private static final float LONG_SECONDS = 10;
+
+	private RecordingLibrary library;
+	private Comparator<RecordingLibrary.Recording> order = RecordingLibrary.BY_DATE;
+	private RecordingLibrary.Filter filter = null;
+	private ArrayList<RecordingLibrary.Recording> shown = new ArrayList<RecordingLibrary.Recording>();
+	private final ArrayList<String> labels = new ArrayList<String>();
+	private ArrayAdapter<String> adapter;
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		adapter = new ArrayAdapter<String>(this, android.R.layout.simple_list_item_1, labels);
+		setListAdapter(adapter);
+		try {
+			library = Storage.getLibrary();
+		} catch (IOException e) {
+			Log.e("HUGO", "Failed opening the library", e);
+		}
+		refresh();
+	}
+
+	@Override
+	public boolean onCreateOptionsMenu(Menu menu) {
+		menu.add(0, NEWEST, 0, "Newest");
+		menu.add(0, LONGEST, 0, "Longest");
+		menu.add(0, LOUDEST, 0, "Loudest");
+		menu.add(0, ALL, 0, "All");
+		menu.add(0, LONG, 0, "Over " + (int)LONG_SECONDS + " s");
+		menu.add(0, SHORT, 0, "Under " + (int)LONG_SECONDS + " s");
+		menu.add(0, LOUD, 0, "Louder than average");
+		return true;
+	}
+
+	@Override
+	public boolean onOptionsItemSelected(MenuItem item) {
+		switch (item.getItemId()) {
+		case NEWEST:
+			order = RecordingLibrary.BY_DATE;
+			break;
+		case LONGEST:
+			order = RecordingLibrary.BY_DURATION;
+			break;
+		case LOUDEST:
+			order = RecordingLibrary.BY_ENERGY;
+			break;
+		case ALL:
+			filter = null;
+			break;
+		case LONG:
+			filter = RecordingLibrary.durationBetween(LONG_SECONDS, Float.MAX_VALUE);
+			break;
+		case SHORT:
+			filter = RecordingLibrary.durationBetween(0, LONG_SECONDS);
+			break;
+		case LOUD:
+			filter = RecordingLibrary.energyAbove(averageEnergy());
+			break;
+		default:
+			return false;
+		}
+		refresh();
+		return true;
+	}
+
+	@Override
+	protected void onListItemClick(ListView l, View v, int position, long id) {
+		Intent result = new Intent();
+		result.putExtra("recording", shown.get(position).id);
+		setResult(RESULT_OK, result);
+		finish();
+	}
+
+	/**
+	 * @return the average energy of the analyzed recordings
+	 */
+	private float averageEnergy() {
+		ArrayList<RecordingLibrary.Recording> all = library != null ? library.list(null, null) : shown;
+		float sum = 0;
+		int count = 0;
+		for (int i = 0; i < all.size(); i++) {
+			float energy = all.get(i).getAverage(Descriptor.ENERGY);
+			if (!Float.isNaN(energy)) {
+				sum += energy;
+				count++;
+			}
+		}
+		return count > 0 ? sum / count : 0;
+	}
+
+	/**
+	 * List the recordings again with the order and filter, only the catalog is read
+	 */
+	private void refresh() {
+		if (library == null) return;
+		shown = library.list(filter, order);
+		labels.clear();
+		DateFormat format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
+		for (int i = 0; i < shown.size(); i++) {
+			RecordingLibrary.Recording r = shown.get(i);
+			StringBuffer label = new StringBuffer();
+			label.append(format.format(new Date(r.created)));
+			label.append("  ").append(Math.round(r.getSeconds() * 10) / 10.0f).append(" s");
+			float energy = r.getAverage(Descriptor.ENERGY);
+			if (!Float.isNaN(energy)) label.append("  energy ").append(energy);
+			if (r.saved) label.append("  (analyzed)");
+			labels.add(label.toString());
+		}
+		adapter.notifyDataSetChanged();
+		setTitle(shown.size() + " of " + library.size() + " recordings");
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.os.Handler;
+import android.util.Log;
+
+/**
+ * @author hugosg
+ * 
+ * Analysis of the audio while it is being recorded. The analysis thread reads
+ * the SampleRing of the capture with its own cursor, so the capture never waits
+ * for it, and runs the same FrameKernel as the Analyzer over a sliding window,
+ * frame by frame, as soon as there are enough samples.
+ * 
+ * The records go to the listener on the UI thread through a Handler, batched
+ * as in the Analyzer. The frames are also saved in a FrameStore, so once the
+ * recording is done the Analyzer only has to read them back.
+ * 
+ * If the analysis falls so much behind that the ring drops samples for it, or
+ * the file missed audio, the store would not match the file and it is marked
+ * incomplete. The live view just misses a piece.
+ */
+public class LiveAnalyzer {
+
+	private static final int READ_SIZE = 4096; //max samples taken from the ring at once
+
+	private final FramePipeline pipeline;
+	private final AnalysisConfig config;
+	private final int[] sizes;
+	private final AnalyzerListener listener;
+	private final Handler handler;
+	private final File storeFile;
+	private final SampleRing.Cursor cursor;
+
+	private final Thread thread;
+	private FrameStore.Writer store; //only touched by the thread, and by finish() once it is done
+	private long samples = 0;
+	private boolean interrupted = false;
+
+	/**
+	 * @param listener who gets the records on the UI thread, null for only saving the frames
+	 * @param handler handler of the UI thread
+	 * @param storeFile where to save the frames
+	 * @param cursor where the samples come from
+	 */
+	public LiveAnalyzer(AnalyzerListener listener, Handler handler, File storeFile, SampleRing.Cursor cursor){
+		this.pipeline = FramePipeline.createDefault(); //the same pipeline and config the AnalyzerActivity uses by default
+		this.config = new AnalysisConfig();
+		this.listener = listener;
+		this.handler = handler;
+		this.storeFile = storeFile;
+		this.cursor = cursor;
+		sizes = new int[pipeline.size()];
+		for(int d = 0; d < sizes.length; d++){
+			sizes[d] = pipeline.get(d).getSize(config.getBins());
+		}
+		thread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				analyzeLoop();
+			}
+		}, "LiveAnalyzer");
+		thread.start();
+	}
+
+	/**
+	 * @return samples lost because the analysis was too far behind
+	 */
+	public long getDropped(){
+		return cursor.getDropped();
+	}
+
+	/**
+	 * @param fileComplete false if the recording lost some audio, the frames would not match the file
+	 * 
+	 * @return true if the store is complete, so the Analyzer will use it
+	 * 
+	 * Wait until every sample is analyzed and save the store. Close the ring first
+	 */
+	public boolean finish(boolean fileComplete){
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false; //the thread may still be using the store
+		}
+		if(store != null){
+			boolean complete = fileComplete && !interrupted && cursor.getDropped() == 0;
+			try {
+				store.finish(samples, complete);
+				return complete;
+			} catch (IOException e) {
+				Log.e("HUGO", "Live analysis failed saving the frames", e);
+			}
+		}
+		return false;
+	}
+
+	private void analyzeLoop(){
+		final int size = config.getFftSize();
+		final int hop = config.getHop();
+		FrameKernel kernel = new FrameKernel(size, config.getWindow(), config.getPrecision(), pipeline);
+		float[][] out = new float[sizes.length][];
+		FrameRecordPool[] pools = new FrameRecordPool[sizes.length];
+		FrameRecordPool valuePool = new FrameRecordPool(1, 1024);
+		for(int d = 0; d < sizes.length; d++){
+			out[d] = new float[sizes[d]];
+			pools[d] = sizes[d] == 1 ? valuePool : new FrameRecordPool(sizes[d], 256);
+		}
+
+		final FrameBatcher[] holder = new FrameBatcher[1]; //the target needs the batcher for recycling
+		FrameBatcher batcher = null;
+		if(listener != null){
+			batcher = new FrameBatcher(new FrameBatcher.Target(){
+				@Override
+				public void deliver(final FrameBatch batch){
+					handler.post(new Runnable(){
+						@Override
+						public void run(){
+							long start = Metrics.start();
+							for(int i = 0; i < batch.size(); i++){
+								listener.analyzePart(batch.get(i));
+							}
+							listener.analyzeFlush();
+							Metrics.PUBLISH.stop(start);
+							holder[0].recycle(batch);
+						}
+					});
+				}
+			});
+			batcher.setBatching(64, 50, 30); //small batches, it is live
+			holder[0] = batcher;
+		}
+
+		try {
+			store = new FrameStore.Writer(storeFile, config, pipeline, sizes);
+		} catch (IOException e) {
+			Log.e("HUGO", "Live analysis can not save the frames in " + storeFile, e);
+		}
+
+		//sliding window: the samples not used yet are always at the beginning
+		short[] window = new short[READ_SIZE + size];
+		int filled = 0;
+		int skip = 0; //samples between frames still to be skipped, when the hop is bigger than the size
+		int frame = 0;
+		try {
+			while(cursor.await(hop)){
+				int length = cursor.read(window, filled, READ_SIZE);
+				samples += length;
+				Metrics.SAMPLES.add(length);
+				int before = frame;
+				if(skip > 0){
+					int skipped = Math.min(skip, length);
+					System.arraycopy(window, filled + skipped, window, filled, length - skipped);
+					length -= skipped;
+					skip -= skipped;
+				}
+				filled += length;
+
+				int start = 0;
+				if(filled >= size) kernel.prepare(window, (filled - size) / hop + 1, hop); //the frames of this read
+				while(start + size <= filled){
+					kernel.process(window, start, out);
+					if(store != null){
+						try {
+							store.write(out);
+						} catch (IOException e) {
+							Log.e("HUGO", "Live analysis failed saving the frames", e);
+							store.abort();
+							store = null;
+						}
+					}
+					if(batcher != null){
+						for(int d = 0; d < sizes.length; d++){
+							FrameRecord record = pools[d].obtain(pipeline.get(d).getDescriptor(), frame + 1, frame);
+							System.arraycopy(out[d], 0, record.values, 0, sizes[d]);
+							record.length = sizes[d];
+							batcher.publish(record);
+						}
+					}
+					frame++;
+					start += hop;
+				}
+				kernel.flushMetrics();
+				Metrics.FRAMES.add(frame - before);
+				if(start > filled){
+					skip = start - filled;
+					start = filled;
+				}
+				//keep what the next frames still need
+				System.arraycopy(window, start, window, 0, filled - start);
+				filled -= start;
+			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+			Thread.currentThread().interrupt();
+		}
+
+		if(batcher != null){
+			batcher.flush();
+			handler.post(new Runnable(){
+				@Override
+				public void run(){
+					listener.analyzeDone();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author hugosg
+ * 
+ * PcmSource for the raw files the Recorder used to write: 16 bit big endian
+ * samples at 44.1 kHz mono, without header. The file is memory mapped through
+ * its FileChannel and read as a ShortBuffer, so a read is a single bulk copy.
+ * 
+ * Only a window of the file is mapped at a time, long recordings do not need
+ * hundreds of MB of address space.
+ */
+public class MappedPcmSource implements PcmSource {
+
+	/** Samples mapped at a time, 2 MB */
+	private static final int WINDOW = 1 << 20;
+	private static final int SAMPLE_RATE = 44100;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long length;
+	private long position = 0;
+
+	private ShortBuffer window; //mapped part of the file
+	private long windowStart = -1; //first sample of the window
+
+	public MappedPcmSource(File f) throws IOException {
+		file = new RandomAccessFile(f, "r");
+		channel = file.getChannel();
+		length = channel.size() / 2;
+	}
+
+	/**
+	 * The raw files have no header, they are always what the Recorder used to capture
+	 */
+	@Override
+	public int getSampleRate(){
+		return SAMPLE_RATE;
+	}
+
+	@Override
+	public int getChannels(){
+		return 1;
+	}
+
+	@Override
+	public long length(){
+		return length;
+	}
+
+	@Override
+	public long position(){
+		return position;
+	}
+
+	@Override
+	public void seek(long sample){
+		position = Math.max(0, Math.min(sample, length));
+	}
+
+	@Override
+	public int read(short[] dst, int off, int len) throws IOException {
+		int read = read(position, dst, off, len);
+		if(read > 0) position += read;
+		return read;
+	}
+
+	@Override
+	public int read(long position, short[] dst, int off, int len) throws IOException {
+		if(position >= length) return -1;
+		int total = (int)Math.min(len, length - position);
+		int done = 0;
+		while(done < total){
+			long sample = position + done;
+			map(sample);
+			int inWindow = (int)(sample - windowStart);
+			int n = Math.min(total - done, window.limit() - inWindow);
+			window.position(inWindow);
+			window.get(dst, off + done, n);
+			done += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Make sure the window contains the sample
+	 */
+	private void map(long sample) throws IOException {
+		if(window != null && sample >= windowStart && sample < windowStart + window.limit()) return;
+		windowStart = sample / WINDOW * WINDOW;
+		long samples = Math.min(WINDOW, length - windowStart);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart * 2, samples * 2)
+				.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+		file.close();
+	}
+}
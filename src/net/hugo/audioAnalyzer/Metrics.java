@@ -0,0 +1,329 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author hugosg
+ * 
+ * Where the time goes: timers of the stages of the recording, the analysis and
+ * the drawing, counters of frames, samples, dropped buffers and allocations in
+ * the hot paths, and histograms of the times. They are all static, anybody can
+ * add to them and anybody can read them, with get() or report(), or on the
+ * screen with the overlay of the AnalyzerActivity.
+ * 
+ * Cheap enough to be always on: the hot loops add up their times in plain
+ * fields and give them here once per block or per buffer, and here it is only
+ * a few atomic adds. setEnabled(false) makes every call return right away.
+ * Nothing of Android, so the BatchAnalyzer and the benchmarks have them too.
+ */
+public class Metrics {
+
+	private static volatile boolean enabled = true;
+	private static final ArrayList<Metric> all = new ArrayList<Metric>();
+
+	//the stages, in the order of the pipeline
+	/** Audio read from the microphone by the Recorder */
+	public static final Timer CAPTURE = new Timer("capture");
+	/** Samples read from the file for the frames */
+	public static final Timer READ = new Timer("read");
+	/** Normalizing and windowing of the frames */
+	public static final Timer WINDOW = new Timer("window");
+	/** FFT and magnitudes of the frames */
+	public static final Timer FFT = new Timer("fft");
+	/** The descriptors of the pipeline */
+	public static final Timer DESCRIPTORS = new Timer("descriptors");
+	/** Merging the blocks in order, records, variations and statistics */
+	public static final Timer MERGE = new Timer("merge");
+	/** Giving a batch of records to the listener on the UI thread */
+	public static final Timer PUBLISH = new Timer("publish");
+	/** Drawing the AnalyzerView */
+	public static final Timer DRAW = new Timer("draw");
+
+	/** Frames computed from the samples, the ones read from a FrameStore do not count */
+	public static final Counter FRAMES = new Counter("frames");
+	/** Samples read for computing the frames */
+	public static final Counter SAMPLES = new Counter("samples");
+	/** Reads of the microphone that gave an error or came after an overrun (see CaptureMonitor), or reads of the ring that lost samples */
+	public static final Counter DROPPED_BUFFERS = new Counter("dropped buffers");
+	/** Arrays and objects created in a hot path because a pool was empty, see allocated() */
+	public static final Counter ALLOCATIONS = new Counter("allocations");
+	public static final Counter ALLOCATED_BYTES = new Counter("allocated bytes");
+
+	/**
+	 * @param on false for not measuring anything, the values stay as they are
+	 */
+	public static void setEnabled(boolean on){
+		enabled = on;
+	}
+
+	public static boolean isEnabled(){
+		return enabled;
+	}
+
+	/**
+	 * @return System.nanoTime(), or 0 if the metrics are off. Give it to Timer.stop()
+	 */
+	public static long start(){
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * @param bytes approximate size of something created in a hot path
+	 */
+	public static void allocated(long bytes){
+		ALLOCATIONS.add(1);
+		ALLOCATED_BYTES.add(bytes);
+	}
+
+	/**
+	 * @return the metric with that name, null if there is none
+	 */
+	public static Metric get(String name){
+		synchronized(all){
+			for(int i = 0; i < all.size(); i++){
+				if(all.get(i).name.equals(name)) return all.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return every metric, in the order they were created
+	 */
+	public static ArrayList<Metric> getAll(){
+		synchronized(all){
+			return new ArrayList<Metric>(all);
+		}
+	}
+
+	/**
+	 * @param lines receives one line per metric that has something
+	 */
+	public static void report(ArrayList<String> lines){
+		ArrayList<Metric> metrics = getAll();
+		for(int i = 0; i < metrics.size(); i++){
+			if(metrics.get(i).getCount() > 0) lines.add(metrics.get(i).toString());
+		}
+	}
+
+	/**
+	 * @return all the metrics that have something, one per line
+	 */
+	public static String report(){
+		ArrayList<String> lines = new ArrayList<String>();
+		report(lines);
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < lines.size(); i++){
+			sb.append(lines.get(i)).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Start all the metrics from zero
+	 */
+	public static void reset(){
+		ArrayList<Metric> metrics = getAll();
+		for(int i = 0; i < metrics.size(); i++){
+			metrics.get(i).reset();
+		}
+	}
+
+	/**
+	 * Something with a name and a count, registered when created
+	 */
+	public static abstract class Metric {
+		public final String name;
+
+		protected Metric(String name){
+			this.name = name;
+			synchronized(all){
+				all.add(this);
+			}
+		}
+
+		public abstract long getCount();
+
+		public abstract void reset();
+	}
+
+	/**
+	 * A number that only goes up
+	 */
+	public static class Counter extends Metric {
+		private final AtomicLong count = new AtomicLong();
+
+		public Counter(String name){
+			super(name);
+		}
+
+		public void add(long n){
+			if(enabled) count.addAndGet(n);
+		}
+
+		@Override
+		public long getCount(){
+			return count.get();
+		}
+
+		@Override
+		public void reset(){
+			count.set(0);
+		}
+
+		@Override
+		public String toString(){
+			return name + ": " + count.get();
+		}
+	}
+
+	/**
+	 * Distribution of values in buckets of powers of two: bucket b has the values from 2^b to 2^(b+1).
+	 * The quantiles are only good to a factor of two, enough to see where the time goes
+	 */
+	public static class Histogram extends Metric {
+		private static final int BUCKETS = 64;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		public Histogram(String name){
+			super(name);
+		}
+
+		/**
+		 * @param value a value, the negative ones count as 0
+		 */
+		public void record(long value){
+			record(value, 1);
+		}
+
+		/**
+		 * @param value total of n values, they count as n times the mean
+		 */
+		public void record(long value, int n){
+			if(!enabled || n <= 0) return;
+			if(value < 0) value = 0;
+			long each = value / n;
+			buckets.addAndGet(bucket(each), n);
+			count.addAndGet(n);
+			sum.addAndGet(value);
+			long m = max.get();
+			while(each > m && !max.compareAndSet(m, each)) m = max.get();
+		}
+
+		private static int bucket(long value){
+			int b = 63 - Long.numberOfLeadingZeros(value);
+			return b < 0 ? 0 : b;
+		}
+
+		@Override
+		public long getCount(){
+			return count.get();
+		}
+
+		public long getSum(){
+			return sum.get();
+		}
+
+		public long getMax(){
+			return max.get();
+		}
+
+		public double getMean(){
+			long n = count.get();
+			return n == 0 ? 0 : (double)sum.get() / n;
+		}
+
+		/**
+		 * @param q from 0 to 1, 0.5 is the median
+		 * @return the top of the bucket of the quantile, so never less than the real one
+		 */
+		public long getQuantile(double q){
+			long n = count.get();
+			if(n == 0) return 0;
+			long rank = (long)Math.ceil(q * n);
+			long seen = 0;
+			for(int b = 0; b < BUCKETS; b++){
+				seen += buckets.get(b);
+				if(seen >= rank) return Math.min(b >= 62 ? Long.MAX_VALUE : (1L << (b + 1)) - 1, max.get());
+			}
+			return max.get();
+		}
+
+		@Override
+		public void reset(){
+			for(int b = 0; b < BUCKETS; b++){
+				buckets.set(b, 0);
+			}
+			count.set(0);
+			sum.set(0);
+			max.set(0);
+		}
+
+		@Override
+		public String toString(){
+			return name + ": n " + count.get() + " mean " + Math.round(getMean()) + " p50 " + getQuantile(0.5)
+					+ " p99 " + getQuantile(0.99) + " max " + max.get();
+		}
+	}
+
+	/**
+	 * A Histogram of nanoseconds, shown in microseconds with the total time
+	 */
+	public static class Timer extends Histogram {
+
+		public Timer(String name){
+			super(name);
+		}
+
+		/**
+		 * @param start what Metrics.start() returned
+		 */
+		public void stop(long start){
+			if(start != 0) record(System.nanoTime() - start);
+		}
+
+		@Override
+		public String toString(){
+			return name + ": n " + getCount() + " total " + getSum() / 1000000 + " ms, us mean "
+					+ micros(getMean()) + " p50 " + micros(getQuantile(0.5))
+					+ " p99 " + micros(getQuantile(0.99)) + " max " + micros(getMax());
+		}
+
+		private static float micros(double nanos){
+			return Math.round(nanos / 100) / 10f;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import android.graphics.Color;
+
+/**
+ * @author hugosg
+ * 
+ * Colors of the plots computed once, so the renderers only look them up by
+ * intensity (0 to 255) while filling their pixel buffers.
+ */
+public class Palette {
+
+	/** The spectrogram colors: red for nothing, orange, yellow for the loudest */
+	public static final int[] SPECTRUM = new int[256];
+	/** Black to white, for the bars */
+	public static final int[] GRAY = new int[256];
+
+	public static final int BLUE = Color.rgb(0x00, 0x00, 0xFF);
+	public static final int GREEN = Color.rgb(0x00, 0xFF, 0x00);
+
+	static {
+		for(int i = 0; i < 256; i++){
+			SPECTRUM[i] = Color.rgb(0xFF, i, 0);
+			GRAY[i] = Color.rgb(i, i, i);
+		}
+	}
+
+	/**
+	 * @return value as an index of the tables, with a hard cut at 0 and 255
+	 */
+	public static int index(float value){
+		if(!(value > 0)) return 0; //NaN too
+		return value >= 255 ? 255 : (int)value;
+	}
+}
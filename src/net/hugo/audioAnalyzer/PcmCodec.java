@@ -0,0 +1,320 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * Lossless compression of a block of 16 bit samples, used by CompressedPcm.
+ * 
+ * Each channel of the block is predicted from its previous samples with the
+ * fixed polynomial predictor of order 0 to 4 that leaves the smallest residual
+ * (the order 2 predictor guesses that the wave goes on in a straight line, and so
+ * on). Only the residual is stored, Rice coded: the residuals are split in
+ * partitions of PARTITION samples, and each partition has its own Rice parameter.
+ * A partition that Rice codes badly (noise, clicks) is stored with a fixed number
+ * of bits instead, the escape, so a block is never much bigger than the raw samples.
+ * 
+ * The predictors have integer coefficients, there is nothing to estimate or to
+ * quantize, so encoding is a few additions per sample and can keep up with the
+ * capture. The bit stream of a channel:
+ * 
+ * 	order (3 bits), the first order samples (16 bits each), then for each partition
+ * 	the Rice parameter k (5 bits) and the residuals, or ESCAPE, the width w (5 bits)
+ * 	and the residuals in w bits each
+ * 
+ * The residuals are zigzag mapped to unsigned (0, -1, 1, -2... to 0, 1, 2, 3...).
+ * A block is byte aligned at the end. Keep one PcmCodec per thread, the scratch
+ * arrays are not shared.
+ */
+public class PcmCodec {
+
+	public static final int MAX_ORDER = 4;
+	private static final int PARTITION = 256; //residuals per Rice parameter
+	private static final int ESCAPE = 31; //Rice parameter that means fixed width residuals
+	private static final int MAX_QUOTIENT = 1 << 24; //more zeros than this is a broken block
+
+	private final int[] residual;
+
+	//bit stream, the bits not yet written or not yet read are the low bits of acc
+	private byte[] buffer;
+	private int position;
+	private int end;
+	private long acc;
+	private int bits;
+
+	/**
+	 * @param blockFrames max frames of a block
+	 */
+	public PcmCodec(int blockFrames){
+		residual = new int[blockFrames];
+	}
+
+	/**
+	 * @return bytes that are always enough for an encoded block
+	 */
+	public static int maxBytes(int blockFrames, int channels){
+		//the escape costs at most 21 bits per residual, the warm up samples are less than that
+		int partitions = (blockFrames + PARTITION - 1) / PARTITION;
+		return channels * ((blockFrames * 21 + partitions * 10 + 3) / 8 + 2);
+	}
+
+	/**
+	 * @param samples the samples of the block, the channels interleaved
+	 * @param off first sample of the block
+	 * @param frames samples per channel, at most the blockFrames of the codec
+	 * @param channels number of channels
+	 * @param out receives the block, it needs maxBytes() after outOff
+	 * @param outOff where the block goes in out
+	 * @return bytes written to out
+	 */
+	public int encode(short[] samples, int off, int frames, int channels, byte[] out, int outOff){
+		buffer = out;
+		position = outOff;
+		acc = 0;
+		bits = 0;
+		for(int c = 0; c < channels; c++){
+			encodeChannel(samples, off + c, channels, frames);
+		}
+		if(bits > 0){
+			out[position++] = (byte)(acc << (8 - bits));
+			bits = 0;
+		}
+		buffer = null;
+		return position - outOff;
+	}
+
+	/**
+	 * @param in the encoded block
+	 * @param off where it starts
+	 * @param length its bytes
+	 * @param samples receives the samples, the channels interleaved
+	 * @param dstOff where the first sample goes
+	 * @param frames samples per channel of the block
+	 * @param channels number of channels
+	 */
+	public void decode(byte[] in, int off, int length, short[] samples, int dstOff, int frames, int channels) throws IOException {
+		buffer = in;
+		position = off;
+		end = off + length;
+		acc = 0;
+		bits = 0;
+		try {
+			for(int c = 0; c < channels; c++){
+				decodeChannel(samples, dstOff + c, channels, frames);
+			}
+		} finally {
+			buffer = null;
+		}
+	}
+
+	private void encodeChannel(short[] x, int off, int stride, int n){
+		final int[] residual = this.residual;
+		int order = n > MAX_ORDER ? bestOrder(x, off, stride, n) : 0;
+		putBits(order, 3);
+		for(int i = 0; i < order; i++){
+			putBits(x[off + i * stride], 16);
+		}
+		//the residual of each sample, zigzag mapped
+		for(int i = order, p = off + order * stride; i < n; i++, p += stride){
+			int e = x[p] - predict(x, p, stride, order);
+			residual[i] = (e << 1) ^ (e >> 31);
+		}
+		for(int from = 0; from < n; from += PARTITION){
+			int start = Math.max(from, order);
+			int to = Math.min(from + PARTITION, n);
+			encodePartition(residual, start, to);
+		}
+	}
+
+	/**
+	 * The sum of the absolute residuals of every order in a single pass, each order
+	 * is the difference of the one below
+	 */
+	private static int bestOrder(short[] x, int off, int stride, int n){
+		long s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+		int p = off + MAX_ORDER * stride;
+		int x1 = x[p - stride], x2 = x[p - 2 * stride], x3 = x[p - 3 * stride], x4 = x[p - 4 * stride];
+		int d1 = x1 - x2, d2 = d1 - (x2 - x3), d3 = d2 - ((x2 - x3) - (x3 - x4));
+		for(int i = MAX_ORDER; i < n; i++, p += stride){
+			int e0 = x[p];
+			int e1 = e0 - x1;
+			int e2 = e1 - d1;
+			int e3 = e2 - d2;
+			int e4 = e3 - d3;
+			s0 += Math.abs(e0);
+			s1 += Math.abs(e1);
+			s2 += Math.abs(e2);
+			s3 += Math.abs(e3);
+			s4 += Math.abs(e4);
+			x1 = e0; d1 = e1; d2 = e2; d3 = e3;
+		}
+		int order = 0;
+		long best = s0;
+		if(s1 < best){ best = s1; order = 1; }
+		if(s2 < best){ best = s2; order = 2; }
+		if(s3 < best){ best = s3; order = 3; }
+		if(s4 < best){ order = 4; }
+		return order;
+	}
+
+	/**
+	 * @return the guess of the fixed predictor for the sample at p
+	 */
+	private static int predict(short[] x, int p, int stride, int order){
+		switch(order){
+		case 1:
+			return x[p - stride];
+		case 2:
+			return 2 * x[p - stride] - x[p - 2 * stride];
+		case 3:
+			return 3 * x[p - stride] - 3 * x[p - 2 * stride] + x[p - 3 * stride];
+		case 4:
+			return 4 * x[p - stride] - 6 * x[p - 2 * stride] + 4 * x[p - 3 * stride] - x[p - 4 * stride];
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Rice code the residuals from to to with the cheapest parameter, or escape them
+	 */
+	private void encodePartition(int[] residual, int from, int to){
+		int n = to - from;
+		if(n <= 0){
+			putBits(0, 5);
+			return;
+		}
+		long sum = 0;
+		int max = 0;
+		for(int i = from; i < to; i++){
+			sum += residual[i];
+			max |= residual[i];
+		}
+		//the best parameter is about log2 of the mean, look around it
+		int guess = 0;
+		while(guess < 30 && (long)n << (guess + 1) <= sum) guess++;
+		int k = 0;
+		long cost = Long.MAX_VALUE;
+		for(int t = Math.max(0, guess - 1); t <= Math.min(30, guess + 1); t++){
+			long c = (long)n * (t + 1);
+			for(int i = from; i < to; i++){
+				c += residual[i] >>> t;
+			}
+			if(c < cost){ cost = c; k = t; }
+		}
+		int width = 32 - Integer.numberOfLeadingZeros(max);
+		if((long)n * width + 5 < cost){
+			putBits(ESCAPE, 5);
+			putBits(width, 5);
+			if(width > 0){
+				for(int i = from; i < to; i++){
+					putBits(residual[i], width);
+				}
+			}
+			return;
+		}
+		putBits(k, 5);
+		for(int i = from; i < to; i++){
+			int u = residual[i];
+			//the quotient in unary, zeros ended by a one, then the k low bits
+			for(int q = u >>> k; q > 0; q -= Math.min(q, 24)){
+				putBits(0, Math.min(q, 24));
+			}
+			putBits(1, 1);
+			if(k > 0) putBits(u, k);
+		}
+	}
+
+	private void decodeChannel(short[] x, int off, int stride, int n) throws IOException {
+		int order = getBits(3);
+		if(order > MAX_ORDER || (order > 0 && order >= n)) throw new IOException("Broken block, order " + order);
+		for(int i = 0; i < order; i++){
+			x[off + i * stride] = (short)getBits(16);
+		}
+		for(int from = 0; from < n; from += PARTITION){
+			int start = Math.max(from, order);
+			int to = Math.min(from + PARTITION, n);
+			int k = getBits(5);
+			int width = k == ESCAPE ? getBits(5) : 0;
+			for(int i = start, p = off + start * stride; i < to; i++, p += stride){
+				int u;
+				if(k == ESCAPE){
+					u = width > 0 ? getBits(width) : 0;
+				} else {
+					u = getUnary() << k;
+					if(k > 0) u |= getBits(k);
+				}
+				int e = (u >>> 1) ^ -(u & 1);
+				x[p] = (short)(e + predict(x, p, stride, order));
+			}
+		}
+	}
+
+	private void putBits(int value, int n){
+		acc = (acc << n) | (value & ((1L << n) - 1));
+		bits += n;
+		while(bits >= 8){
+			bits -= 8;
+			buffer[position++] = (byte)(acc >>> bits);
+		}
+	}
+
+	private int getBits(int n) throws IOException {
+		while(bits < n){
+			if(position >= end) throw new IOException("Broken block, too short");
+			acc = (acc << 8) | (buffer[position++] & 0xFF);
+			bits += 8;
+		}
+		bits -= n;
+		return (int)((acc >>> bits) & ((1L << n) - 1));
+	}
+
+	/**
+	 * @return number of zeros before the next one
+	 */
+	private int getUnary() throws IOException {
+		int q = 0;
+		while(true){
+			long left = acc & ((1L << bits) - 1);
+			if(left != 0){
+				int zeros = bits - (64 - Long.numberOfLeadingZeros(left));
+				bits -= zeros + 1;
+				return q + zeros;
+			}
+			q += bits;
+			bits = 0;
+			if(q > MAX_QUOTIENT || position >= end) throw new IOException("Broken block, bad residual");
+			acc = (acc << 8) | (buffer[position++] & 0xFF);
+			bits = 8;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * How to open a recording and where its side files are, without android.
+ * Where the recordings themselves are is in Storage.
+ */
+public class PcmFiles {
+
+	/**
+	 * @param recording a recording
+	 * @return the file with the frames analyzed while recording it, see FrameStore
+	 */
+	public static File getFrameStore(File recording){
+		return new File(recording.getPath() + ".frames");
+	}
+
+	/**
+	 * @param recording a recording
+	 * @return the file with the gaps of the recording, see Discontinuities. There is none if it has no gaps
+	 */
+	public static File getDiscontinuities(File recording){
+		return new File(recording.getPath() + ".gaps");
+	}
+
+	/**
+	 * @return a source to read the samples of the file, compressed or raw
+	 */
+	public static PcmSource open(File file) throws IOException {
+		if(CompressedPcm.isCompressed(file)) return new CompressedPcmSource(file);
+		return new MappedPcmSource(file);
+	}
+}
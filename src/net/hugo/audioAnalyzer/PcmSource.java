@@ -0,0 +1,87 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * A recording seen as an array of 16 bit samples. It replaces reading the
+ * file one short at a time with a DataInputStream: the samples are read in
+ * bulk, and any part of the recording can be read without going through
+ * what is before it.
+ * 
+ * Use PcmFiles.open() to get one.
+ */
+public interface PcmSource {
+
+	/**
+	 * @return samples per second of each channel
+	 */
+	int getSampleRate();
+
+	/**
+	 * @return number of channels, their samples come interleaved
+	 */
+	int getChannels();
+
+	/**
+	 * @return number of samples of the recording
+	 */
+	long length();
+
+	/**
+	 * @return the sample the next read() starts at
+	 */
+	long position();
+
+	/**
+	 * @param sample where the next read() starts
+	 */
+	void seek(long sample);
+
+	/**
+	 * @return number of samples read, less than len only at the end of the recording, -1 if
+	 * there was nothing left
+	 * 
+	 * Read the next samples and move the position after them
+	 */
+	int read(short[] dst, int off, int len) throws IOException;
+
+	/**
+	 * @return number of samples read, less than len only at the end of the recording, -1 if
+	 * position is at or after the end
+	 * 
+	 * Read the samples starting at position, the position of the source does not change
+	 */
+	int read(long position, short[] dst, int off, int len) throws IOException;
+
+	void close() throws IOException;
+}
@@ -0,0 +1,167 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author hugosg
+ * 
+ * Writes the captured audio from its own thread, so the thread reading the
+ * AudioRecord never waits for the SD card.
+ * 
+ * The writer is one more consumer of the SampleRing of the capture. Its thread
+ * reads the new samples with its own cursor and gives them to a CompressedPcm.Writer,
+ * which compresses and writes them a block at a time. Nothing is allocated per read,
+ * and the compression is done here, out of the capture thread.
+ * 
+ * If the writer falls more than the ring behind, the capture does not wait,
+ * the oldest samples are lost for the file and getDropped() counts them.
+ * Each loss is a RING gap of getDiscontinuities(), at its sample of the file,
+ * and getFileSample() moves the gaps found by the CaptureMonitor, counted in
+ * captured samples, to the file too.
+ */
+public class PcmWriter {
+
+	private final CompressedPcm.Writer out;
+	private final SampleRing.Cursor cursor;
+	private final short[] block;
+	private final Thread thread;
+	private volatile IOException error;
+	private final long start; //position of the cursor at the first sample of the file
+	private final Discontinuities gaps = new Discontinuities(); //in samples of the file
+	private final Discontinuities drops = new Discontinuities(); //the same ones, in positions of the ring
+
+	/**
+	 * @param file where to write, it is created again if it exists
+	 * @param cursor where the samples come from
+	 * @param bufferSize max samples per read of the ring
+	 * @param sampleRate of the captured audio, it goes to the header
+	 */
+	public PcmWriter(File file, SampleRing.Cursor cursor, int bufferSize, int sampleRate) throws IOException {
+		out = new CompressedPcm.Writer(file, sampleRate, 1);
+		this.cursor = cursor;
+		start = cursor.getPosition();
+		block = new short[bufferSize];
+		thread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				writeLoop();
+			}
+		}, "PcmWriter");
+		thread.start();
+	}
+
+	/**
+	 * @return samples lost because the writer was too far behind
+	 */
+	public long getDropped(){
+		return cursor.getDropped();
+	}
+
+	/**
+	 * @return the samples lost by the writer, in samples of the file. Complete once it is closed
+	 */
+	public Discontinuities getDiscontinuities(){
+		return gaps;
+	}
+
+	/**
+	 * @param captured a position of the ring, as CaptureMonitor.getWritten()
+	 * @return the sample of the file with that position, or where the file jumps over it if it was lost.
+	 * Only once it is closed
+	 */
+	public long getFileSample(long captured){
+		long lost = 0;
+		for(int i = 0; i < drops.size(); i++){
+			Discontinuities.Gap drop = drops.get(i);
+			if(captured <= drop.sample) break;
+			if(captured < drop.sample + drop.lost) return drop.sample - start - lost;
+			lost += drop.lost;
+		}
+		return Math.max(captured - start - lost, 0);
+	}
+
+	/**
+	 * @return samples written to the file, all of them once it is closed
+	 */
+	public long getSamples(){
+		return out.getSamples();
+	}
+
+	/**
+	 * @return samples captured but not written yet
+	 */
+	public long getLag(){
+		return cursor.getLag();
+	}
+
+	/**
+	 * Wait until everything is written and close the file. Close the ring first
+	 */
+	public void close() throws IOException {
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			if(error == null) error = e;
+		}
+		if(error != null) throw error;
+	}
+
+	private void writeLoop(){
+		try {
+			while(cursor.await(1)){
+				long position = cursor.getPosition();
+				long dropped = cursor.getDropped();
+				int length = cursor.read(block, 0, block.length);
+				long lost = cursor.getDropped() - dropped;
+				if(lost > 0){
+					//the lost samples are the first ones after the position, just before the ones we got
+					drops.add(position, lost, Discontinuities.RING);
+					gaps.add(out.getSamples(), lost, Discontinuities.RING);
+				}
+				if(error == null && length > 0){
+					try {
+						out.write(block, 0, length);
+					} catch (IOException e) {
+						error = e; //keep reading so the lag does not grow, close() reports it
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
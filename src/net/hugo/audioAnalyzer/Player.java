@@ -28,17 +28,13 @@
  */
 package net.hugo.audioAnalyzer;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioTrack;
 import android.os.AsyncTask;
-import android.os.Environment;
 import android.util.Log;
 
 /**
@@ -46,12 +42,32 @@ import android.util.Log;
  * 
  * This code is an extension and variation of the code in
  * http://emeadev.blogspot.com/2009/09/raw-audio-manipulation-in-android.html
+ * 
+ * The file is not loaded, it is streamed in small chunks into an AudioTrack
+ * with a small buffer, so playing starts right away. While playing, the position
+ * of the playhead is sent to the listener.
  *
  */
-public class Player extends AsyncTask<AudioAnalyzer, Void, Void>{
+public class Player extends AsyncTask<AudioAnalyzer, Long, Void>{
 	
 	PlayerListener pl;
 	
+	private static final int CHUNK = 4096; //samples read and written at a time
+	private static final long PROGRESS_INTERVAL = 50; //ms between progress updates
+	private static final long DRAIN_MARGIN = 500; //ms more than the buffer to wait for its end
+	private static final long STALL = 300; //ms without the playhead moving, the track is done or stuck
+	
+	private long musicLength = 0;
+	private int sampleRate = 0; //of the recording, from its header
+	private File file = Storage.getRecording();
+	
+	/**
+	 * @param file the recording to play, see RecordingLibrary. Call it before execute()
+	 */
+	public void setFile(File file){
+		this.file = file;
+	}
+	
 	/**
 	 * @param pl
 	 * 
@@ -77,52 +93,100 @@ public class Player extends AsyncTask<AudioAnalyzer, Void, Void>{
 		}
 	}
 
+	@Override
+	protected void onProgressUpdate(Long... position) {
+		synchronized(this){
+			pl.playProgress(position[0].longValue(), musicLength, sampleRate);
+		}
+	}
+
 	@Override
 	protected Void doInBackground(AudioAnalyzer... params) {
 		// Get the file we want to playback.
-		File file = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/recording.pcm");
-		// Get the length of the audio stored in the file (16 bit so 2 bytes per short)
-		// and create a short array to store the recorded audio.
-		int musicLength = (int)(file.length()/2);
-		short[] music = new short[musicLength];
+		File file = this.file;
 
+		PcmSource source = null;
+		AudioTrack audioTrack = null;
 		try {
-			// Create a DataInputStream to read the audio data back from the saved file.
-			InputStream is = new FileInputStream(file);
-			BufferedInputStream bis = new BufferedInputStream(is);
-			DataInputStream dis = new DataInputStream(bis);
+			source = PcmFiles.open(file);
+			int channels = source.getChannels();
+			musicLength = source.length() / channels; //in frames, as the playhead
+			sampleRate = source.getSampleRate();
 
-			// Read the file into the music array.
-			int i = 0;
-			while (dis.available() > 0) {
-				music[i] = dis.readShort();
-				i++;
-			}
-
-			// Close the input streams.
-			dis.close();     
-
-			// Create a new AudioTrack object using the same parameters as the AudioRecord
-			// object used to create the file.
-			AudioTrack audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, 
-					44100, //hard coded! not ideal
-					AudioFormat.CHANNEL_CONFIGURATION_MONO,
+			// Create a new AudioTrack object with the format in the header of the file.
+			// The buffer is only a few times the minimum, we keep it full from the file while playing
+			int channelConfiguration = channels == 2 ? AudioFormat.CHANNEL_CONFIGURATION_STEREO : AudioFormat.CHANNEL_CONFIGURATION_MONO;
+			int bufferSize = AudioTrack.getMinBufferSize(source.getSampleRate(),
+					channelConfiguration,
+					AudioFormat.ENCODING_PCM_16BIT); //in bytes
+			int trackBytes = Math.max(bufferSize * 2, CHUNK * 2);
+			audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, 
+					source.getSampleRate(),
+					channelConfiguration,
 					AudioFormat.ENCODING_PCM_16BIT, 
-					musicLength, 
+					trackBytes, 
 					AudioTrack.MODE_STREAM);
 			
-			//There is a minor issue. This audio Track player will play the file
-			//until the end without a way to track the location of the reading or the end of playing :-(
-			//at least as we use it here
 			// Start playback
 			audioTrack.play();
-			// Write the music buffer to the AudioTrack object
-			audioTrack.write(music, 0, musicLength);
+			short[] chunk = new short[CHUNK];
+			long written = 0;
+			long lastProgress = 0;
+			int read;
+			// Write the file chunk by chunk, write blocks while the AudioTrack buffer is full
+			while (!isCancelled() && (read = source.read(chunk, 0, CHUNK)) > 0) {
+				audioTrack.write(chunk, 0, read);
+				written += read / channels;
+				lastProgress = progress(audioTrack, lastProgress);
+			}
+			// In stream mode stop() still plays what is in the buffer. The playhead may never get to
+			// written (a recording shorter than the buffer, an underrun, a stuck track), so we wait
+			// at most the buffer plus a margin, and not longer than the playhead keeps moving
+			audioTrack.stop();
+			long bufferMillis = 1000L * trackBytes / (2 * channels) / sampleRate;
+			long now = System.currentTimeMillis();
+			long deadline = now + bufferMillis + DRAIN_MARGIN;
+			long head = -1;
+			long moved = now;
+			while (!isCancelled() && now < deadline && now - moved < STALL) {
+				long position = audioTrack.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+				if (position >= written) break;
+				if (position != head) {
+					head = position;
+					moved = now;
+				}
+				Thread.sleep(PROGRESS_INTERVAL / 2);
+				lastProgress = progress(audioTrack, lastProgress);
+				now = System.currentTimeMillis();
+			}
+			publishProgress(written);
 
 		} catch (Throwable t) {
 			Log.e("AudioTrack","Playback Failed");
+		} finally {
+			if (audioTrack != null) audioTrack.release();
+			if (source != null) {
+				try {
+					source.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
 		//Log.i("HUGO", "DONE PLAYING");
 		return null;
 	}
+
+	/**
+	 * @return the time of the last update
+	 * 
+	 * Send the position of the playhead, if the last update is old enough
+	 */
+	private long progress(AudioTrack audioTrack, long lastProgress){
+		long now = System.currentTimeMillis();
+		if (now - lastProgress < PROGRESS_INTERVAL) return lastProgress;
+		//the position is an unsigned int of frames, one sample of each channel
+		publishProgress(audioTrack.getPlaybackHeadPosition() & 0xFFFFFFFFL);
+		return now;
+	}
 }
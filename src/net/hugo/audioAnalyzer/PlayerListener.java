@@ -31,14 +31,20 @@ package net.hugo.audioAnalyzer;
 /**
  * @author hugosg
  * 
- * This Listener is for sending the state of the player to the main activity
- * Be warned that at the moment we can not track the end of play state
- * so this is used just to give some time for setting up
+ * This Listener is for sending the state of the player to the main activity:
+ * when it starts, where the playhead is, and when the end was played
  *
  */
 public interface PlayerListener {
 	
 	void prePlayer();
 	void postPlayer();
+	
+	/**
+	 * @param position sample being played
+	 * @param length number of samples of the recording
+	 * @param sampleRate of the recording, from its header
+	 */
+	void playProgress(long position, long length, int sampleRate);
 
 }
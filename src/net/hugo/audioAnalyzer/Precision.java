@@ -0,0 +1,68 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * The arithmetic of the windowing and the FFT of the FrameKernel, speed or
+ * precision per device. The descriptors get the magnitudes in double anyway,
+ * only the expensive part changes.
+ * 
+ * The bounds are against DOUBLE, the worst of 30 random frequencies and
+ * phases of each: a tone at full scale, 40 dB and 66 dB down, white noise at
+ * full scale and 40 dB down, noise of +-1 LSB and a full scale square wave,
+ * FFT sizes 256, 1024 and 4096, Hann. The magnitudes are relative to the
+ * biggest bin of the frame, the descriptors relative to their value.
+ */
+public enum Precision {
+
+	/** The reference, what the analysis always did */
+	DOUBLE,
+
+	/**
+	 * Float arrays and tables, the normalization inside the window table.
+	 * Magnitudes within 7e-5 of the peak, centroid within 2e-6 and energy within 5e-5,
+	 * the worst are the loud tones at 4096. Nobody will see the difference
+	 */
+	FLOAT,
+
+	/**
+	 * 16 bit samples, window and twiddles, 32 bit butterflies with block floating point,
+	 * see FixedFFT. The windowed frame keeps the bits of a quiet one, and the products of
+	 * the butterflies are rounded. Magnitudes within 2e-2 of the peak, so the spectrogram
+	 * looks the same. With noise, quiet or loud, down to +-1 LSB, the centroid and the
+	 * energy stay within 5e-5. But a clean tone leaves most bins at the noise floor of the
+	 * rounding of the butterflies, and both read high, more the louder the tone: the energy
+	 * of a full scale tone 5% at 256, 21% at 1024 and 69% at 4096, its centroid 0.2%, 2.5%
+	 * and 26%. 40 dB down the energy is 1%, 3% and 7% high, a square wave 0.04%, 8% and 0.6%.
+	 * So AnalysisConfig refuses it over AnalysisConfig.MAX_FIXED_FFT_SIZE
+	 */
+	FIXED;
+}
@@ -28,19 +28,14 @@
  */
 package net.hugo.audioAnalyzer;
 
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
 
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
 import android.os.AsyncTask;
-import android.os.Environment;
+import android.os.Handler;
 import android.util.Log;
 
 /**
@@ -48,16 +43,62 @@ import android.util.Log;
  * 
  * This code is an extension and variation of the code in
  * http://emeadev.blogspot.com/2009/09/raw-audio-manipulation-in-android.html
+ * 
+ * The background thread only captures: every buffer read from the AudioRecord
+ * goes into a SampleRing and that is all. The file writer, the live analysis
+ * and the level meter read the ring with their own cursors, so none of them
+ * can make the capture wait. The meter runs on the UI thread and only looks at
+ * the newest samples.
+ * 
+ * Each recording is a new file of the RecordingLibrary, added to its catalog
+ * once the file is closed.
+ * 
+ * The AudioRecord gets a buffer of several times the minimum, and a
+ * CaptureMonitor decides how much to read each time, more when we are behind
+ * and less when the device is idle. The gaps it finds, and the samples the
+ * PcmWriter could not keep, are saved next to the recording, see Discontinuities.
  *
  */
-public class Recorder extends AsyncTask<AudioAnalyzer, ArrayList<Float>, Void>{
+public class Recorder extends AsyncTask<AudioAnalyzer, Void, Void>{
 
-	public boolean isRecording = false;
+	public volatile boolean isRecording = false;
 	
 	private AudioRecord audioRecord = null;
-	private DataOutputStream dos = null;
 	
 	private RecorderListener rl;
+	private AnalyzerListener liveListener;
+	private volatile RecordingLibrary.Recording recording; //null until it is in the library
+	private final Handler handler = new Handler(); //created with the task, so on the UI thread
+	
+	private static final int RING_SECONDS = 3; //how far behind a consumer can be before losing audio
+	private static final int DEVICE_BUFFERS = 8; //buffer of the AudioRecord, in minimum buffers
+	private static final int METER_SAMPLES = 2048; //samples the level meter looks at
+	private static final int METER_INTERVAL = 1000 / 30; //ms between updates of the meter
+	
+	private SampleRing.Cursor meterCursor;
+	private final short[] meterSamples = new short[METER_SAMPLES];
+	
+	/**
+	 * Level meter, every METER_INTERVAL on the UI thread while recording
+	 */
+	private final Runnable meter = new Runnable(){
+		@Override
+		public void run(){
+			meterCursor.skipTo(METER_SAMPLES); //only the newest audio matters
+			int length = meterCursor.read(meterSamples, 0, METER_SAMPLES);
+			if (length > 0) {
+				float maxOfBuffer = 0;
+				for (int i = 0; i < length; i++){
+					//This two lines are for extracting the Mayor value in the current buffer
+					float currentValue = (float)(Math.abs(meterSamples[i] * 1.0 / (Short.MAX_VALUE + 1)));
+					if(currentValue > maxOfBuffer) maxOfBuffer = currentValue;
+				}
+				//the value goes as it is, no boxing 30 times per second
+				rl.recordPart(maxOfBuffer);
+			}
+			if (meterCursor.isOpen()) handler.postDelayed(this, METER_INTERVAL);
+		}
+	};
 	
 	/**
 	 * @param rl
@@ -68,11 +109,31 @@ public class Recorder extends AsyncTask<AudioAnalyzer, ArrayList<Float>, Void>{
 		this.rl = rl;
 	}
 	
+	/**
+	 * @param liveListener gets the frames analyzed while recording, on the UI thread
+	 * 
+	 * The frames are analyzed and saved for the AnalyzerActivity even without a live listener
+	 */
+	public void setLiveListener(AnalyzerListener liveListener){
+		this.liveListener = liveListener;
+	}
+	
+	/**
+	 * @return what was recorded, null if it failed or it is not done
+	 */
+	public RecordingLibrary.Recording getRecording(){
+		return recording;
+	}
+	
+	/* (non-Javadoc)
+	 * @see android.os.AsyncTask#onPostExecute(java.lang.Object)
+	 * 
+	 * The file is complete only once the writer thread is done, not when stopRecording is called
+	 */
 	@Override
-	protected void onProgressUpdate(ArrayList<Float>... list) {
-		//super.onProgressUpdate(values);
+	protected void onPostExecute(Void result) {
 		synchronized(this){
-			rl.recordPart(list[0]);
+			rl.recordDone();
 		}
 	}
 
@@ -81,12 +142,15 @@ public class Recorder extends AsyncTask<AudioAnalyzer, ArrayList<Float>, Void>{
 		int frequency = 44100; //hard coded, not idea
 		int channelConfiguration = AudioFormat.CHANNEL_CONFIGURATION_MONO;
 		int audioEncoding = AudioFormat.ENCODING_PCM_16BIT;
-		File file = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/recording.pcm");
-
-		// Delete any previous recording.
-		if (file.exists())
-			file.delete();
-
+		// A new file in the library, the previous recordings stay
+		RecordingLibrary library;
+		try {
+			library = Storage.getLibrary();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to open the library: " + e.getMessage());
+		}
+		File file = library.newFile();
+		File store = PcmFiles.getFrameStore(file);
 
 		// Create the new file.
 		try {
@@ -96,60 +160,99 @@ public class Recorder extends AsyncTask<AudioAnalyzer, ArrayList<Float>, Void>{
 			throw new IllegalStateException("Failed to create " + file.toString());
 		}
 
+		SampleRing ring = null;
+		PcmWriter writer = null;
+		LiveAnalyzer live = null;
+		CaptureMonitor monitor = null;
 		try {
-			// Create a DataOuputStream to write the audio data into the saved file.
-			OutputStream os = new FileOutputStream(file);
-			BufferedOutputStream bos = new BufferedOutputStream(os);
-			dos = new DataOutputStream(bos);
-
-			// Create a new AudioRecord object to record the audio.
+			// Create a new AudioRecord object to record the audio. The sizes of the AudioRecord are in bytes
 			int bufferSize = AudioRecord.getMinBufferSize(frequency, channelConfiguration,  audioEncoding);
 			audioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, 
 					frequency, channelConfiguration, 
-					audioEncoding, bufferSize);
+					audioEncoding, bufferSize * DEVICE_BUFFERS);
+			monitor = new CaptureMonitor(frequency, bufferSize / 2, bufferSize * DEVICE_BUFFERS / 2);
 
-			short[] buffer = new short[bufferSize];   
+			// Everybody reads the audio from the ring, each one from its own thread, so this loop never waits
+			ring = new SampleRing(frequency * RING_SECONDS);
+			writer = new PcmWriter(file, ring.newCursor(), bufferSize, frequency); //compresses the audio data into the file
+			live = new LiveAnalyzer(liveListener, handler, store, ring.newCursor());
+			meterCursor = ring.newCursor();
+			short[] buffer = new short[monitor.getMaxReadSize()];
 			Log.i("HUGO", "The audio record created fine ready to record");
 
 			audioRecord.startRecording();
 			isRecording = true;
 
 			Log.i("HUGO", "Start recording fine");
+			handler.post(meter);
 
 			while (isRecording) {
-				int bufferReadResult = audioRecord.read(buffer, 0, bufferSize);
-				float maxOfBuffer = 0;
-				for (int i = 0; i < bufferReadResult; i++){
-					dos.writeShort(buffer[i]);
-					
-					//This two lines are for extracting the Mayor value in the current buffer
-					float currentValue = (float)(Math.abs(buffer[i] * 1.0 / (Short.MAX_VALUE + 1)));
-					if(currentValue > maxOfBuffer) maxOfBuffer = currentValue;
+				int readSize = monitor.getReadSize();
+				long start = Metrics.start();
+				int bufferReadResult = audioRecord.read(buffer, 0, readSize);
+				Metrics.CAPTURE.stop(start);
+				monitor.read(bufferReadResult, System.nanoTime());
+				if (bufferReadResult > 0) {
+					ring.write(buffer, 0, bufferReadResult);
+				} else if (bufferReadResult < 0 && isRecording) {
+					Thread.sleep(1000L * readSize / frequency); //an error code, do not spin while it lasts
 				}
-				//These three lines are for sending (publishing) the value inside an array which is passed to the listener
-				//so we can track the max value
-				ArrayList<Float> maxData = new ArrayList<Float>();
-				maxData.add(maxOfBuffer);
-				publishProgress(maxData);
 			}
 
 		} catch (Throwable t) {
 			Log.e("HUGO","Recording Failed");
+		} finally {
+			if (ring != null) {
+				ring.close(); //the consumers finish with what is left
+			}
+			boolean fileComplete = false;
+			if (writer != null) {
+				try {
+					writer.close();
+					fileComplete = writer.getDropped() == 0;
+				} catch (IOException e) {
+					Log.e("HUGO", "Failed writing " + file, e);
+				}
+				if (writer.getDropped() > 0) Log.w("HUGO", "Writer behind, dropped " + writer.getDropped() + " samples");
+			}
+			boolean saved = false;
+			if (live != null) {
+				saved = live.finish(fileComplete); //the saved frames are only good if the file has all the audio
+				if (live.getDropped() > 0) Log.w("HUGO", "Live analysis behind, dropped " + live.getDropped() + " samples");
+			}
+			if (monitor != null) {
+				//the gaps of the capture are counted in captured samples, the file may have lost some of them
+				Discontinuities gaps = writer != null ? writer.getDiscontinuities() : new Discontinuities();
+				Discontinuities capture = monitor.getDiscontinuities();
+				for (int i = 0; i < capture.size(); i++) {
+					Discontinuities.Gap gap = capture.get(i);
+					gaps.add(writer != null ? writer.getFileSample(gap.sample) : gap.sample, gap.lost, gap.kind);
+				}
+				if (gaps.size() > 0) Log.w("HUGO", gaps.size() + " gaps in the recording, " + gaps.getLost() + " samples lost");
+				try {
+					gaps.save(PcmFiles.getDiscontinuities(file));
+				} catch (IOException e) {
+					Log.e("HUGO", "Failed saving the gaps of " + file, e);
+				}
+			}
+			if (writer != null) {
+				try {
+					recording = library.add(file, writer.getSamples(), frequency, 1, saved);
+				} catch (IOException e) {
+					Log.e("HUGO", "Failed adding " + file + " to the library", e);
+				}
+			}
 		}
 		return null;
 	}
 
 	/**
-	 * This stop the recording, this is called from the main activity
+	 * This stop the recording, this is called from the main activity.
+	 * The file is closed by the background thread, the listener knows with recordDone()
 	 */
 	public void stopRecording(){
 		isRecording = false;
 		Log.i("HUGO", "Out of recording");
 		audioRecord.stop();
-		try {
-			dos.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
 	}
 }
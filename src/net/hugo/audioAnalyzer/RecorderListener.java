@@ -28,8 +28,6 @@
  */
 package net.hugo.audioAnalyzer;
 
-import java.util.ArrayList;
-
 /**
  * @author hugosg
  * 
@@ -40,6 +38,14 @@ import java.util.ArrayList;
  */
 public interface RecorderListener {
 
-	void recordPart(ArrayList<Float> arrayList);
+	/**
+	 * @param level max absolute value of the newest samples, between 0.0 and 1.0
+	 */
+	void recordPart(float level);
+	
+	/**
+	 * Called once the recording is completely written in the file
+	 */
+	void recordDone();
 
 }
@@ -0,0 +1,535 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import android.util.Log;
+
+/**
+ * @author hugosg
+ * 
+ * All the recordings, each one in its own file of the library directory, and a
+ * catalog with what is known about each one: length, sample rate, the averages
+ * of the HEAD once it was analyzed and if its analysis is saved. Listing, sorting
+ * and filtering the recordings only looks at the catalog, no audio is opened.
+ * 
+ * The catalog is append only. Each change is one record at the end of the file:
+ * 
+ * 	ADD id, file name, created, samples, sample rate, channels, saved
+ * 	SUMMARY id, number of averages, then the ordinal of the Descriptor and the average of each
+ * 	SAVED id, saved
+ * 	DELETE id
+ * 
+ * Each record starts with its length, so a record cut in half (the phone died
+ * while writing it) is found when loading and dropped. When most of the records
+ * are about recordings that are gone or values that changed, the catalog is
+ * written again with one ADD and one SUMMARY per recording. The old catalog is
+ * kept aside until the new one is in place, so dying in the middle loses nothing.
+ * 
+ * All the methods are synchronized, the Recorder adds from its thread.
+ */
+public class RecordingLibrary {
+
+	private static final int MAGIC = 0x48524C43; //"HRLC"
+	private static final int VERSION = 1;
+	private static final String CATALOG = "catalog";
+	private static final String TMP = ".tmp"; //the new catalog of compact() while it is written
+	private static final String BACKUP = ".old"; //the old catalog while the new one goes in place
+	private static final String SUFFIX = ".hpcm";
+
+	private static final int ADD = 1;
+	private static final int SUMMARY = 2;
+	private static final int SAVED = 3;
+	private static final int DELETE = 4;
+
+	private static final int MIN_COMPACT = 64; //records before thinking about compacting
+	private static final int MAX_RECORD = 1 << 16; //bigger than any record, a length over it is garbage
+
+	/**
+	 * Newest first
+	 */
+	public static final Comparator<Recording> BY_DATE = new Comparator<Recording>(){
+		@Override
+		public int compare(Recording a, Recording b){
+			return a.created == b.created ? 0 : (a.created < b.created ? 1 : -1);
+		}
+	};
+
+	/**
+	 * Longest first
+	 */
+	public static final Comparator<Recording> BY_DURATION = new Comparator<Recording>(){
+		@Override
+		public int compare(Recording a, Recording b){
+			return Float.compare(b.getSeconds(), a.getSeconds());
+		}
+	};
+
+	/**
+	 * Loudest first, the ones that were never analyzed at the end
+	 */
+	public static final Comparator<Recording> BY_ENERGY = new Comparator<Recording>(){
+		@Override
+		public int compare(Recording a, Recording b){
+			float ea = a.getAverage(Descriptor.ENERGY);
+			float eb = b.getAverage(Descriptor.ENERGY);
+			if(Float.isNaN(ea) || Float.isNaN(eb)) return Float.isNaN(ea) ? (Float.isNaN(eb) ? 0 : 1) : -1;
+			return Float.compare(eb, ea);
+		}
+	};
+
+	/**
+	 * What is known about a recording. It does not change, a change in the library
+	 * replaces it with a new one
+	 */
+	public static class Recording {
+
+		public final long id;
+		public final File file;
+		/** When it was recorded, ms */
+		public final long created;
+		public final long samples;
+		public final int sampleRate;
+		public final int channels;
+		/** Ordinals of the Descriptors of the averages */
+		public final int[] ordinals;
+		/** Averages of the HEAD, empty until it is analyzed */
+		public final float[] averages;
+		/** True if the frames of its analysis are saved, see FrameStore */
+		public final boolean saved;
+
+		Recording(long id, File file, long created, long samples, int sampleRate, int channels, int[] ordinals, float[] averages, boolean saved){
+			this.id = id;
+			this.file = file;
+			this.created = created;
+			this.samples = samples;
+			this.sampleRate = sampleRate;
+			this.channels = channels;
+			this.ordinals = ordinals;
+			this.averages = averages;
+			this.saved = saved;
+		}
+
+		public float getSeconds(){
+			return sampleRate > 0 ? (float)samples / channels / sampleRate : 0;
+		}
+
+		/**
+		 * @return the average of the descriptor in the HEAD, NaN if it is not known
+		 */
+		public float getAverage(Descriptor descriptor){
+			for(int i = 0; i < ordinals.length; i++){
+				if(ordinals[i] == descriptor.ordinal()) return averages[i];
+			}
+			return Float.NaN;
+		}
+	}
+
+	/**
+	 * Which recordings list() returns
+	 */
+	public interface Filter {
+		boolean accept(Recording recording);
+	}
+
+	/**
+	 * @return a filter for the recordings with a duration between min and max seconds
+	 */
+	public static Filter durationBetween(final float min, final float max){
+		return new Filter(){
+			@Override
+			public boolean accept(Recording recording){
+				float seconds = recording.getSeconds();
+				return seconds >= min && seconds <= max;
+			}
+		};
+	}
+
+	/**
+	 * @return a filter for the analyzed recordings with an average energy of at least min
+	 */
+	public static Filter energyAbove(final float min){
+		return new Filter(){
+			@Override
+			public boolean accept(Recording recording){
+				return recording.getAverage(Descriptor.ENERGY) >= min; //false for NaN
+			}
+		};
+	}
+
+	private final File dir;
+	private final File catalog;
+	private final LinkedHashMap<Long, Recording> recordings = new LinkedHashMap<Long, Recording>();
+	private long nextId = 1;
+	private int records = 0; //records in the catalog, live or not
+
+	/**
+	 * @param dir where the recordings and the catalog are, created if needed
+	 */
+	public RecordingLibrary(File dir) throws IOException {
+		this.dir = dir;
+		this.catalog = new File(dir, CATALOG);
+		if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Can not create " + dir);
+		recover();
+		if(catalog.exists()){
+			load();
+		} else {
+			compact(); //an empty catalog, just the header
+		}
+	}
+
+	/**
+	 * @return a new file for a recording, give it to add() once it is recorded
+	 */
+	public synchronized File newFile(){
+		long time = System.currentTimeMillis();
+		File file;
+		do {
+			file = new File(dir, "recording-" + (time++) + SUFFIX);
+		} while(file.exists());
+		return file;
+	}
+
+	/**
+	 * @param file a recording of the library directory, see newFile()
+	 * @param samples its length
+	 * @param sampleRate its sample rate
+	 * @param channels its channels
+	 * @param saved true if the frames of its analysis are saved next to it
+	 * @return the new recording
+	 */
+	public synchronized Recording add(File file, long samples, int sampleRate, int channels, boolean saved) throws IOException {
+		long id = nextId++;
+		Recording recording = new Recording(id, file, System.currentTimeMillis(), samples, sampleRate, channels, new int[0], new float[0], saved);
+		append(addRecord(recording));
+		recordings.put(Long.valueOf(id), recording);
+		return recording;
+	}
+
+	/**
+	 * @param file a recording from somewhere else, it is moved into the library
+	 * @return the new recording, or null if the file is not a recording
+	 * 
+	 * The only time the audio is opened, for knowing its length and sample rate
+	 */
+	public synchronized Recording importFile(File file) throws IOException {
+		long samples;
+		int sampleRate, channels;
+		PcmSource source = PcmFiles.open(file);
+		try {
+			samples = source.length();
+			sampleRate = source.getSampleRate();
+			channels = source.getChannels();
+		} finally {
+			source.close();
+		}
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		File target = newFile();
+		if(dot >= 0 && !name.substring(dot).equals(SUFFIX)){
+			//a raw recording keeps its extension, it is not converted
+			String path = target.getPath();
+			target = new File(path.substring(0, path.length() - SUFFIX.length()) + name.substring(dot));
+		}
+		if(!file.renameTo(target)) throw new IOException("Can not move " + file + " to " + target);
+		File store = PcmFiles.getFrameStore(file);
+		boolean saved = store.exists() && store.renameTo(PcmFiles.getFrameStore(target));
+		File gaps = PcmFiles.getDiscontinuities(file);
+		if(gaps.exists()) gaps.renameTo(PcmFiles.getDiscontinuities(target));
+		return add(target, samples, sampleRate, channels, saved);
+	}
+
+	/**
+	 * @param ordinals ordinals of the Descriptors of the averages
+	 * @param averages the averages of the HEAD of its analysis
+	 */
+	public synchronized void setSummary(long id, int[] ordinals, float[] averages) throws IOException {
+		Recording r = recordings.get(Long.valueOf(id));
+		if(r == null) return;
+		append(summaryRecord(id, ordinals, averages));
+		recordings.put(Long.valueOf(id), new Recording(id, r.file, r.created, r.samples, r.sampleRate, r.channels, ordinals, averages, r.saved));
+	}
+
+	/**
+	 * @param saved true if the frames of its analysis are saved
+	 */
+	public synchronized void setSaved(long id, boolean saved) throws IOException {
+		Recording r = recordings.get(Long.valueOf(id));
+		if(r == null || r.saved == saved) return;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(SAVED);
+		out.writeLong(id);
+		out.writeBoolean(saved);
+		append(bytes.toByteArray());
+		recordings.put(Long.valueOf(id), new Recording(id, r.file, r.created, r.samples, r.sampleRate, r.channels, r.ordinals, r.averages, saved));
+	}
+
+	/**
+	 * Remove the recording from the catalog and delete its files
+	 */
+	public synchronized void delete(long id) throws IOException {
+		Recording r = recordings.remove(Long.valueOf(id));
+		if(r == null) return;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(DELETE);
+		out.writeLong(id);
+		append(bytes.toByteArray());
+		r.file.delete();
+		PcmFiles.getFrameStore(r.file).delete();
+		PcmFiles.getDiscontinuities(r.file).delete();
+	}
+
+	/**
+	 * @return the recording, null if there is none with that id
+	 */
+	public synchronized Recording get(long id){
+		return recordings.get(Long.valueOf(id));
+	}
+
+	public synchronized int size(){
+		return recordings.size();
+	}
+
+	/**
+	 * @param filter which recordings, null for all
+	 * @param order how to sort them, null for the order they were added
+	 * @return the recordings, a new list
+	 */
+	public synchronized ArrayList<Recording> list(Filter filter, Comparator<Recording> order){
+		ArrayList<Recording> list = new ArrayList<Recording>(recordings.size());
+		for(Iterator<Recording> i = recordings.values().iterator(); i.hasNext();){
+			Recording r = i.next();
+			if(filter == null || filter.accept(r)) list.add(r);
+		}
+		if(order != null) Collections.sort(list, order);
+		return list;
+	}
+
+	/**
+	 * Read the whole catalog, up to the first record that is not complete
+	 */
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(catalog)));
+		long valid = 8;
+		try {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a catalog: " + catalog);
+			while(true){
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				if(length <= 0 || length > MAX_RECORD) break; //garbage
+				byte[] record = new byte[length];
+				try {
+					in.readFully(record);
+					replay(new DataInputStream(new ByteArrayInputStream(record)));
+				} catch (IOException e) {
+					Log.w("HUGO", "Dropping a broken record at the end of " + catalog);
+					break;
+				}
+				valid += 4 + length;
+				records++;
+			}
+		} finally {
+			in.close();
+		}
+		if(valid < catalog.length()){
+			RandomAccessFile file = new RandomAccessFile(catalog, "rw");
+			try {
+				file.setLength(valid); //the next records go after the last good one
+			} finally {
+				file.close();
+			}
+		}
+		if(records > MIN_COMPACT && records > 4 * recordings.size()) compact();
+	}
+
+	private void replay(DataInputStream in) throws IOException {
+		int type = in.readByte();
+		long id = in.readLong();
+		Long key = Long.valueOf(id);
+		Recording r = recordings.get(key);
+		switch(type){
+		case ADD:
+			String name = in.readUTF();
+			long created = in.readLong();
+			long samples = in.readLong();
+			int sampleRate = in.readInt();
+			int channels = in.readInt();
+			boolean saved = in.readBoolean();
+			recordings.put(key, new Recording(id, new File(dir, name), created, samples, sampleRate, channels, new int[0], new float[0], saved));
+			if(id >= nextId) nextId = id + 1;
+			break;
+		case SUMMARY:
+			int count = in.readInt();
+			int[] ordinals = new int[count];
+			float[] averages = new float[count];
+			for(int i = 0; i < count; i++){
+				ordinals[i] = in.readInt();
+				averages[i] = in.readFloat();
+			}
+			if(r != null) recordings.put(key, new Recording(id, r.file, r.created, r.samples, r.sampleRate, r.channels, ordinals, averages, r.saved));
+			break;
+		case SAVED:
+			boolean s = in.readBoolean();
+			if(r != null) recordings.put(key, new Recording(id, r.file, r.created, r.samples, r.sampleRate, r.channels, r.ordinals, r.averages, s));
+			break;
+		case DELETE:
+			recordings.remove(key);
+			break;
+		default:
+			Log.w("HUGO", "Unknown record " + type + " in " + catalog);
+		}
+	}
+
+	private void append(byte[] record) throws IOException {
+		FileOutputStream out = new FileOutputStream(catalog, true);
+		try {
+			byte[] bytes = new byte[4 + record.length];
+			bytes[0] = (byte)(record.length >>> 24);
+			bytes[1] = (byte)(record.length >>> 16);
+			bytes[2] = (byte)(record.length >>> 8);
+			bytes[3] = (byte)record.length;
+			System.arraycopy(record, 0, bytes, 4, record.length);
+			out.write(bytes); //a single write, so the record is cut at most at the end
+		} finally {
+			out.close();
+		}
+		records++;
+		if(records > MIN_COMPACT && records > 4 * recordings.size()) compact();
+	}
+
+	/**
+	 * Put back the catalog if compact() died while replacing it: the old one is in BACKUP and the
+	 * new one, complete, in TMP
+	 */
+	private void recover(){
+		File backup = new File(dir, CATALOG + BACKUP);
+		if(catalog.exists()){
+			backup.delete(); //the new one was in place already
+			return;
+		}
+		File tmp = new File(dir, CATALOG + TMP);
+		if(backup.exists() && backup.renameTo(catalog)){
+			Log.w("HUGO", "Catalog restored from " + backup);
+		} else if(tmp.exists() && tmp.renameTo(catalog)){
+			Log.w("HUGO", "Catalog restored from " + tmp);
+		}
+	}
+
+	/**
+	 * Write the catalog again with only what is live, into a new file that replaces the old one
+	 */
+	private void compact() throws IOException {
+		File tmp = new File(dir, CATALOG + TMP);
+		FileOutputStream file = new FileOutputStream(tmp);
+		DataOutputStream out = new DataOutputStream(file);
+		int written = 0;
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for(Iterator<Recording> i = recordings.values().iterator(); i.hasNext();){
+				Recording r = i.next();
+				byte[] record = addRecord(r);
+				out.writeInt(record.length);
+				out.write(record);
+				written++;
+				if(r.ordinals.length > 0){
+					record = summaryRecord(r.id, r.ordinals, r.averages);
+					out.writeInt(record.length);
+					out.write(record);
+					written++;
+				}
+			}
+			out.flush();
+			file.getFD().sync(); //all on disk before it takes the place of the old one
+		} finally {
+			out.close();
+		}
+		if(!tmp.renameTo(catalog)){
+			//some file systems do not replace on rename, the old one goes aside until the new one is in
+			File backup = new File(dir, CATALOG + BACKUP);
+			backup.delete();
+			if(catalog.exists() && !catalog.renameTo(backup)) throw new IOException("Can not replace " + catalog);
+			if(!tmp.renameTo(catalog)){
+				backup.renameTo(catalog);
+				throw new IOException("Can not replace " + catalog);
+			}
+			backup.delete();
+		}
+		records = written;
+	}
+
+	private static byte[] addRecord(Recording r) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(ADD);
+		out.writeLong(r.id);
+		out.writeUTF(r.file.getName());
+		out.writeLong(r.created);
+		out.writeLong(r.samples);
+		out.writeInt(r.sampleRate);
+		out.writeInt(r.channels);
+		out.writeBoolean(r.saved);
+		return bytes.toByteArray();
+	}
+
+	private static byte[] summaryRecord(long id, int[] ordinals, float[] averages) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(SUMMARY);
+		out.writeLong(id);
+		out.writeInt(ordinals.length);
+		for(int i = 0; i < ordinals.length; i++){
+			out.writeInt(ordinals[i]);
+			out.writeFloat(averages[i]);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import android.os.SystemClock;
+import android.view.View;
+
+/**
+ * @author hugosg
+ * 
+ * Coalesces the invalidations of a view to the refresh of the display: any
+ * number of request() calls between two refreshes become a single invalidate()
+ * at the next one, so a view fed by a fast producer redraws at most once per
+ * frame of the display instead of once per batch or per scroll event.
+ * 
+ * Only from the UI thread.
+ */
+public class RedrawScheduler implements Runnable {
+
+	/** Refresh period of the display we assume, 60 Hz */
+	public static final long FRAME_MILLIS = 16;
+
+	private final View view;
+	private boolean pending = false;
+
+	public RedrawScheduler(View view){
+		this.view = view;
+	}
+
+	/**
+	 * Redraw the view at the next refresh, if it is not already going to be redrawn
+	 */
+	public void request(){
+		if(pending) return;
+		pending = true;
+		//aligned to the refresh, so two requests in the same frame never make two redraws
+		view.postDelayed(this, FRAME_MILLIS - SystemClock.uptimeMillis() % FRAME_MILLIS);
+	}
+
+	/**
+	 * Forget a redraw that was requested, for when the view goes away
+	 */
+	public void cancel(){
+		if(pending) view.removeCallbacks(this);
+		pending = false;
+	}
+
+	@Override
+	public void run(){
+		pending = false;
+		view.invalidate();
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Statistics of a stream of values in one pass, without keeping the values:
+ * count, mean and variance (Welford, so no big sums that lose the decimals),
+ * min, max and some quantiles.
+ * 
+ * The quantiles are estimated with the P-square algorithm (Jain and Chlamtac,
+ * 1985): five markers per quantile that move with the values, their heights
+ * adjusted with a parabola. Exact up to five values, after that a
+ * good estimate for the smooth distributions of the descriptors, not for a
+ * handful of values repeated many times.
+ */
+public class RunningStats {
+
+	private long count;
+	private double mean;
+	private double m2; //sum of the squares of the differences from the mean
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final Quantile[] quantiles;
+
+	/**
+	 * Without quantiles
+	 */
+	public RunningStats(){
+		this(new double[0]);
+	}
+
+	/**
+	 * @param probabilities of the quantiles to estimate, between 0 and 1, 0.5 for the median
+	 */
+	public RunningStats(double[] probabilities){
+		quantiles = new Quantile[probabilities.length];
+		for(int i = 0; i < probabilities.length; i++){
+			quantiles[i] = new Quantile(probabilities[i]);
+		}
+	}
+
+	public void add(double value){
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		if(value < min) min = value;
+		if(value > max) max = value;
+		for(int i = 0; i < quantiles.length; i++){
+			quantiles[i].add(value);
+		}
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	/**
+	 * @return mean of the values, 0 if there are none
+	 */
+	public double getMean(){
+		return mean;
+	}
+
+	/**
+	 * @return variance of the values (divided by the count, they are all the values), 0 if there are none
+	 */
+	public double getVariance(){
+		return count > 0 ? m2 / count : 0;
+	}
+
+	public double getStandardDeviation(){
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return the minor value, infinity if there are none
+	 */
+	public double getMin(){
+		return min;
+	}
+
+	/**
+	 * @return the major value, -infinity if there are none
+	 */
+	public double getMax(){
+		return max;
+	}
+
+	/**
+	 * @param i index of the quantile in the probabilities of the constructor
+	 * @return its estimate, 0 if there are no values
+	 */
+	public double getQuantile(int i){
+		return quantiles[i].get();
+	}
+
+	/**
+	 * One P-square estimator. Marker 2 is the quantile, 0 and 4 the min and max,
+	 * 1 and 3 half way
+	 */
+	private static class Quantile {
+
+		private final double p;
+		private final double[] heights = new double[5];
+		private final int[] positions = new int[5];
+		private final double[] desired = new double[5];
+		private final double[] increments = new double[5];
+		private int count;
+
+		Quantile(double p){
+			if(p < 0 || p > 1) throw new IllegalArgumentException("probability must be between 0 and 1, got " + p);
+			this.p = p;
+			increments[1] = p / 2;
+			increments[2] = p;
+			increments[3] = (1 + p) / 2;
+			increments[4] = 1;
+		}
+
+		void add(double value){
+			if(count < 5){
+				//the first five values are kept sorted, they are the markers
+				int i = count++;
+				while(i > 0 && heights[i - 1] > value){
+					heights[i] = heights[i - 1];
+					i--;
+				}
+				heights[i] = value;
+				if(count == 5){
+					for(int m = 0; m < 5; m++){
+						positions[m] = m;
+					}
+					desired[0] = 0;
+					desired[1] = 2 * p;
+					desired[2] = 4 * p;
+					desired[3] = 2 + 2 * p;
+					desired[4] = 4;
+				}
+				return;
+			}
+			count++;
+
+			//the cell of the value, the markers after it move one position
+			int k;
+			if(value < heights[0]){
+				heights[0] = value;
+				k = 0;
+			} else if(value >= heights[4]){
+				if(value > heights[4]) heights[4] = value;
+				k = 3;
+			} else {
+				k = 0;
+				while(value >= heights[k + 1]) k++;
+			}
+			for(int m = k + 1; m < 5; m++){
+				positions[m]++;
+			}
+			for(int m = 0; m < 5; m++){
+				desired[m] += increments[m];
+			}
+
+			//the middle markers that are off by one or more go back towards their place
+			for(int m = 1; m < 4; m++){
+				double d = desired[m] - positions[m];
+				if((d >= 1 && positions[m + 1] - positions[m] > 1) || (d <= -1 && positions[m - 1] - positions[m] < -1)){
+					int s = d > 0 ? 1 : -1;
+					double h = parabolic(m, s);
+					if(heights[m - 1] < h && h < heights[m + 1]){
+						heights[m] = h;
+					} else { //the parabola goes out, linear
+						heights[m] += s * (heights[m + s] - heights[m]) / (positions[m + s] - positions[m]);
+					}
+					positions[m] += s;
+				}
+			}
+		}
+
+		private double parabolic(int m, int s){
+			double n0 = positions[m - 1], n1 = positions[m], n2 = positions[m + 1];
+			return heights[m] + s / (n2 - n0) * ((n1 - n0 + s) * (heights[m + 1] - heights[m]) / (n2 - n1)
+					+ (n2 - n1 - s) * (heights[m] - heights[m - 1]) / (n1 - n0));
+		}
+
+		double get(){
+			if(count == 0) return 0;
+			if(count <= 5) return heights[(int)Math.round(p * (count - 1))]; //exact, they are sorted
+			return heights[2];
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author hugosg
+ * 
+ * Ring of samples between the capture and whoever wants the audio: the file
+ * writer, the level meter, the live analysis. There is a single producer, the
+ * thread reading the AudioRecord, and each consumer reads with its own Cursor.
+ * 
+ * Nothing is locked and nothing is allocated after the creation. The producer
+ * never waits for anybody, it just goes on writing over the oldest samples. A
+ * consumer that is more than the capacity behind loses the samples that were
+ * overwritten, and its Cursor counts them, so a slow consumer is seen as lag and
+ * drops, never as a stall in the capture.
+ * 
+ * The positions are counted in samples since the start, as longs, so they never
+ * wrap. Before writing over old samples the producer moves claimed, and after the
+ * samples are in the array it moves written: a consumer reads up to written and,
+ * after copying, checks claimed to know if something it copied was overwritten.
+ * 
+ * The copies are plain array accesses, so that check alone is not enough: the
+ * stores of the producer could be seen before its claimed, and the loads of the
+ * consumer could be done after it reads claimed. So the consumer writes the
+ * volatile fence after copying and the producer reads it after claiming, before
+ * writing. If the consumer still sees the old claimed, its write of the fence
+ * comes before the read of the producer, so the copy happens-before the new
+ * samples and can not have seen any of them (JLS 17.4.4, a volatile write
+ * synchronizes-with every later read of it).
+ */
+public class SampleRing {
+
+	private final short[] samples;
+	private final int mask;
+	private volatile long claimed = 0; //samples up to here may be being written
+	private volatile long written = 0; //samples up to here can be read
+	private volatile int fence = 0; //only for ordering the copies against claimed, see above
+	private volatile boolean closed = false;
+	private volatile Cursor[] cursors = new Cursor[0];
+
+	/**
+	 * @param capacity samples kept, rounded up to a power of two
+	 */
+	public SampleRing(int capacity){
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		samples = new short[size];
+		mask = size - 1;
+	}
+
+	public int getCapacity(){
+		return samples.length;
+	}
+
+	/**
+	 * @return samples written since the start
+	 */
+	public long getWritten(){
+		return written;
+	}
+
+	/**
+	 * @return a new consumer, it starts at the current position. Create the cursors before the capture starts
+	 */
+	public synchronized Cursor newCursor(){
+		Cursor cursor = new Cursor(written);
+		Cursor[] more = new Cursor[cursors.length + 1];
+		System.arraycopy(cursors, 0, more, 0, cursors.length);
+		more[cursors.length] = cursor;
+		cursors = more;
+		return cursor;
+	}
+
+	/**
+	 * @param source samples to add
+	 * @param offset where they start
+	 * @param length how many, if more than the capacity only the last ones are kept
+	 * 
+	 * Only the capture thread calls it. Never blocks
+	 */
+	public void write(short[] source, int offset, int length){
+		if(length <= 0) return;
+		if(length > samples.length){
+			offset += length - samples.length;
+			length = samples.length;
+		}
+		long position = written;
+		claimed = position + length; //from now on the samples being replaced are not valid
+		@SuppressWarnings("unused")
+		int ordered = fence; //read only for the ordering, the stores below can not be seen before the claim
+		int start = (int)(position & mask);
+		int first = Math.min(length, samples.length - start);
+		System.arraycopy(source, offset, samples, start, first);
+		System.arraycopy(source, offset + first, samples, 0, length - first);
+		written = position + length;
+		wakeUp();
+	}
+
+	/**
+	 * No more samples, the consumers get the ones left and then the end
+	 */
+	public void close(){
+		closed = true;
+		wakeUp();
+	}
+
+	private void wakeUp(){
+		final Cursor[] cursors = this.cursors;
+		for(int i = 0; i < cursors.length; i++){
+			Thread waiter = cursors[i].waiter;
+			if(waiter != null) LockSupport.unpark(waiter);
+		}
+	}
+
+	/**
+	 * The position of one consumer in the ring. Only one thread reads with a cursor
+	 */
+	public class Cursor {
+
+		private long position;
+		private volatile long dropped = 0;
+		private volatile long read = 0;
+		private volatile Thread waiter;
+
+		Cursor(long position){
+			this.position = position;
+		}
+
+		/**
+		 * @return samples waiting to be read, more than the capacity if some are already lost
+		 */
+		public long getLag(){
+			return written - read;
+		}
+
+		/**
+		 * @return samples lost because this consumer was too slow
+		 */
+		public long getDropped(){
+			return dropped;
+		}
+
+		/**
+		 * @return position of the next sample, counted from the start of the ring
+		 */
+		public long getPosition(){
+			return position;
+		}
+
+		/**
+		 * @return false if the ring is closed and there is nothing left
+		 */
+		public boolean isOpen(){
+			return !closed || written > position;
+		}
+
+		/**
+		 * @param target receives the samples
+		 * @param offset where to put them
+		 * @param length max number of samples
+		 * @return number of samples read, 0 if there are none. Never blocks
+		 */
+		public int read(short[] target, int offset, int length){
+			long end = written;
+			long oldest = end - samples.length;
+			if(position < oldest){ //lapped by the producer
+				dropped += oldest - position;
+				position = oldest;
+				Metrics.DROPPED_BUFFERS.add(1);
+			}
+			int n = (int)Math.min(length, end - position);
+			if(n <= 0) return 0;
+			int start = (int)(position & mask);
+			int first = Math.min(n, samples.length - start);
+			System.arraycopy(samples, start, target, offset, first);
+			System.arraycopy(samples, 0, target, offset + first, n - first);
+			fence = 0; //the copy is done before claimed is read
+
+			//the producer may have been writing over what we copied, those first samples are lost
+			long lost = claimed - samples.length - position;
+			if(lost > 0){
+				lost = Math.min(lost, n);
+				System.arraycopy(target, offset + (int)lost, target, offset, n - (int)lost);
+				dropped += lost;
+				n -= (int)lost;
+				Metrics.DROPPED_BUFFERS.add(1);
+			}
+			position += n + (lost > 0 ? lost : 0);
+			read = position;
+			return n;
+		}
+
+		/**
+		 * @param count how many samples we want
+		 * @return false if the ring was closed and there is nothing left to read
+		 * 
+		 * Wait until there are at least the samples we want, or until the ring is closed
+		 */
+		public boolean await(int count) throws InterruptedException {
+			waiter = Thread.currentThread();
+			try {
+				while(written - position < count){
+					if(closed) return written > position;
+					LockSupport.parkNanos(10000000L); //the producer unparks us, this is just in case
+					if(Thread.interrupted()) throw new InterruptedException();
+				}
+				return true;
+			} finally {
+				waiter = null;
+			}
+		}
+
+		/**
+		 * Forget everything older than the last samples, for consumers that only want the newest audio.
+		 * The skipped samples are not counted as dropped
+		 */
+		public void skipTo(int count){
+			long end = written;
+			if(end - position > count){
+				position = end - count;
+				read = position;
+			}
+		}
+	}
+}
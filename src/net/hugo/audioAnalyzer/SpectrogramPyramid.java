@@ -0,0 +1,230 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * FramePyramid of the spectrum. There are many values per frame, so they are
+ * kept as what is drawn, an intensity from 0 to 255 per bin, one byte each.
+ * The intensity is the one the spectrogram always had: value * 512 with a hard
+ * cut at 255.
+ */
+public class SpectrogramPyramid extends FramePyramid {
+
+	/** Default max bytes of the levels kept, all of them for about a minute and a half of 128 bins */
+	public static final long MAX_BYTES = 8 * 1024 * 1024;
+
+	private final int bins;
+	private final byte[][] min;
+	private final byte[][] max;
+	private final byte[][] mean;
+
+	//the open node of each level
+	private final int[][] openMin, openMax;
+	private final long[][] openSum;
+	private final int[] openCount;
+
+	/**
+	 * @param frames number of frames
+	 * @param bins values per frame
+	 */
+	public SpectrogramPyramid(int frames, int bins){
+		this(frames, bins, MAX_BYTES);
+	}
+
+	/**
+	 * @param frames number of frames
+	 * @param bins values per frame
+	 * @param maxBytes the levels kept should not take more than this
+	 */
+	public SpectrogramPyramid(int frames, int bins, long maxBytes){
+		super(frames, bins, 3 * bins, maxBytes);
+		this.bins = bins;
+		min = new byte[levels][];
+		max = new byte[levels][];
+		mean = new byte[levels][];
+		if(base == 0){
+			byte[] values = new byte[nodes[0] * bins];
+			min[0] = max[0] = mean[0] = values;
+		}
+		for(int k = Math.max(base, 1); k < levels; k++){
+			min[k] = new byte[nodes[k] * bins];
+			max[k] = new byte[nodes[k] * bins];
+			mean[k] = new byte[nodes[k] * bins];
+		}
+		openMin = new int[levels][bins];
+		openMax = new int[levels][bins];
+		openSum = new long[levels][bins];
+		openCount = new int[levels];
+		for(int k = 0; k < levels; k++){
+			open(k);
+		}
+	}
+
+	public int getBins(){
+		return bins;
+	}
+
+	/**
+	 * @return the intensity drawn for a value of the spectrum
+	 */
+	public static int intensity(float value){
+		//we are assuming the max value will be around 0.5 if its bigger we set a hard cut Good for visualization
+		return (int)Math.max(0, Math.min(value * 512, 255.0f));
+	}
+
+	/**
+	 * @param frame must be the next frame
+	 * @param values the spectrum
+	 * @param length number of values, the bins above are left at 0
+	 */
+	public void add(int frame, float[] values, int length){
+		if(frame != filled || filled >= frames) return; //only in order
+		int n = Math.min(length, bins);
+		if(levels > 1){
+			final int[] lo = openMin[1], hi = openMax[1];
+			final long[] sum = openSum[1];
+			for(int b = 0; b < bins; b++){
+				int v = b < n ? intensity(values[b]) : 0;
+				if(v < lo[b]) lo[b] = v;
+				if(v > hi[b]) hi[b] = v;
+				sum[b] += v;
+			}
+			openCount[1]++;
+		}
+		if(base == 0){
+			final byte[] level = mean[0];
+			int offset = frame * bins;
+			for(int b = 0; b < n; b++){
+				level[offset + b] = (byte)intensity(values[b]);
+			}
+		}
+		added();
+	}
+
+	/**
+	 * @param from first frame
+	 * @param to frame after the last one
+	 * @param outMin receives the min intensity of each bin, or null
+	 * @param outMax receives the max intensity of each bin, or null
+	 * @param outMean receives the mean intensity of each bin, or null
+	 * @return false if none of the frames is there yet
+	 */
+	public boolean get(int from, int to, int[] outMin, int[] outMax, int[] outMean){
+		from = Math.max(from, 0);
+		to = Math.min(to, filled);
+		if(to <= from) return false;
+		int k = choose(from, to);
+		if(k == NONE) return false;
+		if(k == PAGED) return getPaged(from, to, outMin, outMax, outMean);
+		final byte[] lmin = min[k], lmax = max[k], lmean = mean[k];
+		for(int b = 0; b < bins; b++){
+			int lo = 255, hi = 0;
+			long total = 0;
+			int count = 0;
+			for(int i = first; i <= last; i++){
+				int c = count(k, i);
+				int j = i * bins + b;
+				int vmin = lmin[j] & 0xFF, vmax = lmax[j] & 0xFF;
+				if(vmin < lo) lo = vmin;
+				if(vmax > hi) hi = vmax;
+				total += (lmean[j] & 0xFF) * (long)c;
+				count += c;
+			}
+			if(outMin != null) outMin[b] = lo;
+			if(outMax != null) outMax[b] = hi;
+			if(outMean != null) outMean[b] = (int)(total / count);
+		}
+		return true;
+	}
+
+	private boolean getPaged(int from, int to, int[] outMin, int[] outMax, int[] outMean){
+		//the open node of level 0 is free, it is the scratch
+		final int[] lo = openMin[0], hi = openMax[0];
+		final long[] sum = openSum[0];
+		open(0);
+		for(int f = from; f < to; f++){
+			FrameBlock page = pages.get(f);
+			if(page == null) return false;
+			int n = Math.min(page.sizes[index], bins);
+			int offset = (f - page.first) * page.sizes[index];
+			final float[] values = page.values[index];
+			for(int b = 0; b < bins; b++){
+				int v = b < n ? intensity(values[offset + b]) : 0;
+				if(v < lo[b]) lo[b] = v;
+				if(v > hi[b]) hi[b] = v;
+				sum[b] += v;
+			}
+		}
+		for(int b = 0; b < bins; b++){
+			if(outMin != null) outMin[b] = lo[b];
+			if(outMax != null) outMax[b] = hi[b];
+			if(outMean != null) outMean[b] = (int)(sum[b] / (to - from));
+		}
+		return true;
+	}
+
+	@Override
+	protected void close(int level, int node){
+		final int[] lo = openMin[level], hi = openMax[level];
+		final long[] sum = openSum[level];
+		final int count = openCount[level];
+		if(level >= base){
+			int offset = node * bins;
+			for(int b = 0; b < bins; b++){
+				min[level][offset + b] = (byte)lo[b];
+				max[level][offset + b] = (byte)hi[b];
+				mean[level][offset + b] = (byte)(count > 0 ? sum[b] / count : 0);
+			}
+		}
+		if(level + 1 < levels){
+			final int[] ulo = openMin[level + 1], uhi = openMax[level + 1];
+			final long[] usum = openSum[level + 1];
+			for(int b = 0; b < bins; b++){
+				if(lo[b] < ulo[b]) ulo[b] = lo[b];
+				if(hi[b] > uhi[b]) uhi[b] = hi[b];
+				usum[b] += sum[b];
+			}
+			openCount[level + 1] += count;
+		}
+		open(level);
+	}
+
+	private void open(int level){
+		final int[] lo = openMin[level], hi = openMax[level];
+		final long[] sum = openSum[level];
+		for(int b = 0; b < bins; b++){
+			lo[b] = 255;
+			hi[b] = 0;
+			sum[b] = 0;
+		}
+		openCount[level] = 0;
+	}
+}
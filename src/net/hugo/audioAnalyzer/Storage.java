@@ -0,0 +1,81 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.os.Environment;
+
+/**
+ * @author hugosg
+ * 
+ * Where the recordings are on the sdcard. How to open them is in PcmFiles,
+ * which has no android in it so the BatchAnalyzer and the benchmarks can use it.
+ */
+public class Storage {
+
+	private static RecordingLibrary library;
+
+	/**
+	 * @return the library of recordings, the same for all the activities
+	 */
+	public static synchronized RecordingLibrary getLibrary() throws IOException {
+		if(library == null) library = new RecordingLibrary(getLibraryDir());
+		return library;
+	}
+
+	/**
+	 * @return the directory of the RecordingLibrary
+	 */
+	public static File getLibraryDir(){
+		return new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/audioAnalyzer/recordings");
+	}
+
+	/**
+	 * @return where the Recorder wrote its only recording before the RecordingLibrary, see CompressedPcm
+	 */
+	public static File getRecording(){
+		return new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/recording.hpcm");
+	}
+
+	/**
+	 * @return where the recording was before it was compressed, raw samples
+	 */
+	public static File getRawRecording(){
+		return new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/recording.pcm");
+	}
+
+	/**
+	 * @return the directory of the AnalysisCache
+	 */
+	public static File getCacheDir(){
+		return new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/audioAnalyzer/cache");
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * FramePyramid of a descriptor with one value per frame: waveform, centroid,
+ * energy, the variations...
+ * 
+ * It keeps the biggest absolute value added so far, for normalizing the
+ * variations when they are drawn.
+ */
+public class TrackPyramid extends FramePyramid {
+
+	/** Default max bytes of the levels kept, all of them for about 3 minutes at 44100 Hz and a hop of 128 */
+	public static final long MAX_BYTES = 512 * 1024;
+
+	private final float[][] min;
+	private final float[][] max;
+	private final float[][] mean;
+	private float peak = 0;
+	private boolean variation = false; //the pages have the descriptor, not its variation
+
+	//the open node of each level
+	private final float[] openMin, openMax;
+	private final double[] openSum;
+	private final int[] openCount;
+
+	public TrackPyramid(int frames){
+		this(frames, MAX_BYTES);
+	}
+
+	/**
+	 * @param frames number of frames
+	 * @param maxBytes the levels kept should not take more than this
+	 */
+	public TrackPyramid(int frames, long maxBytes){
+		super(frames, 4, 3 * 4, maxBytes);
+		min = new float[levels][];
+		max = new float[levels][];
+		mean = new float[levels][];
+		if(base == 0){
+			float[] values = new float[nodes[0]];
+			min[0] = max[0] = mean[0] = values; //a single frame is its own min, max and mean
+		}
+		for(int k = Math.max(base, 1); k < levels; k++){
+			min[k] = new float[nodes[k]];
+			max[k] = new float[nodes[k]];
+			mean[k] = new float[nodes[k]];
+		}
+		openMin = new float[levels];
+		openMax = new float[levels];
+		openSum = new double[levels];
+		openCount = new int[levels];
+		for(int k = 0; k < levels; k++){
+			open(k);
+		}
+	}
+
+	/**
+	 * @param pages the frames of the analysis at full detail
+	 * @param index index in the pipeline of the pages of the descriptor, or of the one it is the variation of
+	 * @param variation true if this is the variation of the descriptor, frame i is frame i minus frame i + 1
+	 */
+	public void setPages(FramePages pages, int index, boolean variation){
+		setPages(pages, index);
+		this.variation = variation;
+	}
+
+	/**
+	 * @param frame must be the next frame
+	 * @param value the value of the descriptor
+	 */
+	public void add(int frame, float value){
+		if(frame != filled || filled >= frames) return; //only in order
+		if(base == 0) mean[0][frame] = value;
+		if(levels > 1) addTo(1, value, value, value, 1);
+		if(Math.abs(value) > peak) peak = Math.abs(value);
+		added();
+	}
+
+	/**
+	 * @return the biggest absolute value of the frames added so far, 0 if none
+	 */
+	public float getPeak(){
+		return peak;
+	}
+
+	/**
+	 * @param from first frame
+	 * @param to frame after the last one
+	 * @param out receives min, max and mean of the frames
+	 * @return false if none of the frames is there yet
+	 */
+	public boolean get(int from, int to, float[] out){
+		from = Math.max(from, 0);
+		to = Math.min(to, filled);
+		if(to <= from) return false;
+		int k = choose(from, to);
+		if(k == NONE) return false;
+		if(k == PAGED) return getPaged(from, to, out);
+		float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+		double sum = 0;
+		int count = 0;
+		for(int i = first; i <= last; i++){
+			int c = count(k, i);
+			if(min[k][i] < lo) lo = min[k][i];
+			if(max[k][i] > hi) hi = max[k][i];
+			sum += mean[k][i] * (double)c;
+			count += c;
+		}
+		out[0] = lo;
+		out[1] = hi;
+		out[2] = (float)(sum / count);
+		return true;
+	}
+
+	private boolean getPaged(int from, int to, float[] out){
+		float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+		double sum = 0;
+		for(int f = from; f < to; f++){
+			FrameBlock page = pages.get(f);
+			if(page == null) return false;
+			float value = page.values[index][(f - page.first) * page.sizes[index]];
+			if(variation){
+				page = pages.get(f + 1);
+				if(page == null) return false;
+				value -= page.values[index][(f + 1 - page.first) * page.sizes[index]];
+			}
+			if(value < lo) lo = value;
+			if(value > hi) hi = value;
+			sum += value;
+		}
+		out[0] = lo;
+		out[1] = hi;
+		out[2] = (float)(sum / (to - from));
+		return true;
+	}
+
+	@Override
+	protected void close(int level, int node){
+		if(level >= base){
+			min[level][node] = openMin[level];
+			max[level][node] = openMax[level];
+			mean[level][node] = openCount[level] > 0 ? (float)(openSum[level] / openCount[level]) : 0;
+		}
+		if(level + 1 < levels) addTo(level + 1, openMin[level], openMax[level], openSum[level], openCount[level]);
+		open(level);
+	}
+
+	private void addTo(int level, float lo, float hi, double sum, int count){
+		if(lo < openMin[level]) openMin[level] = lo;
+		if(hi > openMax[level]) openMax[level] = hi;
+		openSum[level] += sum;
+		openCount[level] += count;
+	}
+
+	private void open(int level){
+		openMin[level] = Float.POSITIVE_INFINITY;
+		openMax[level] = Float.NEGATIVE_INFINITY;
+		openSum[level] = 0;
+		openCount[level] = 0;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * This code is part of the project "Audio Analyzer for the Android"
+ * developed for the course CSE 599Y
+ * "Mobile and Cloud Applications for Emerging Regions" 
+ * at the University of Washington Computer Science & Engineering
+ * 
+ * The goal of this project is to create an audio analyzer that
+ * allows the user to record, play and analyze audio files.
+ * The program plot the waveform of the recording, the spectrogram,
+ * and plot several audio descriptors.
+ * 
+ * At the current state the audio descriptors are:
+ * 	- Spectral Centroid
+ * 	- Spectral Centroid Variation
+ * 	- Energy
+ * 	- Energy Variation
+ * 	- Zero Crossing
+ * 	- Zero Crossing Variation
+ * 
+ * In addition to this temporal descriptors the total average of them
+ * is presented in numeral format with the duration of the recording, and
+ * the number of samples.
+ * 
+ * Otherwise noticed, the code was created by Hugo Solis
+ * hugosg@uw.edu, feel free to contact me if you have any questions.
+ * Dec 16, 2009
+ * hugosg
+ */
+package net.hugo.audioAnalyzer;
+
+/**
+ * @author hugosg
+ * 
+ * Windows a frame can be multiplied by before the FFT. HANN is the one the
+ * analysis always used. All of them are periodic, as the FFT expects.
+ */
+public enum WindowType {
+	RECTANGULAR,
+	HANN,
+	HAMMING,
+	BLACKMAN;
+
+	/**
+	 * @param n size of the window
+	 * @return a new array with the window
+	 */
+	public double[] create(int n){
+		double[] w = new double[n];
+		for(int i = 0; i < n; i++){
+			double x = 2 * Math.PI * i / n;
+			switch(this){
+			case RECTANGULAR:
+				w[i] = 1;
+				break;
+			case HANN:
+				w[i] = 0.5 - 0.5 * Math.cos(x);
+				break;
+			case HAMMING:
+				w[i] = 0.54 - 0.46 * Math.cos(x);
+				break;
+			case BLACKMAN:
+				w[i] = 0.42 - 0.5 * Math.cos(x) + 0.08 * Math.cos(2 * x);
+				break;
+			}
+		}
+		return w;
+	}
+}